@@ -2,97 +2,446 @@ package com.imlac.pds1;
 
 import android.content.Context;
 import android.opengl.GLES20;
+import android.opengl.GLES30;
 import android.opengl.GLSurfaceView;
 import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.Display;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
 /**
- * OpenGL ES 2.0 vector CRT renderer.
- * All vectors drawn in 2 batched draw calls per frame (lines + points).
+ * OpenGL ES 2.0 vector CRT renderer (instanced on ES 3.0 when available).
+ * Draws the latest DisplayFrame published by EmuLoop; no emulation
+ * work happens on the GL thread.
+ * Every vector (and point) is a screen-aligned quad expanded in the vertex
+ * shader, with round caps and a smooth falloff, so beam width does not
+ * depend on glLineWidth()/gl_PointSize limits. All vectors go out in one
+ * draw call from a persistent VBO; only changed vectors are re-uploaded.
+ * The phosphor tint is a shader uniform.
+ * Phosphor persistence is an FBO ping-pong: the previous frame is faded
+ * on the GPU and the new vectors are added on top. CRT glow is a
+ * quarter-resolution separable Gaussian bloom composited over the scene.
  * ~10x faster than Canvas.drawLine() on Snapdragon 4xx.
  */
 public class CrtView extends GLSurfaceView implements GLSurfaceView.Renderer {
 
     private static final int PDS = 1024;
 
-    // Vertex shader — passes brightness as alpha
+    // Vector record (8 bytes), four GL_SHORTs with the small fields in
+    // their low bits:
+    //   x1 << 4 | intensity >> 4         y1 << 4 | intensity & 15
+    //   x2 << 3 | kind << 2 | corner     y2
+    // kind is 0 = line / 1 = point; corner (along << 1 | side) says which
+    // end and which side of the segment a vertex sits on. The packing
+    // leaves 12 bits of signed range for x1 and y1, so endpoints are
+    // clipped to a guard box of GUARD_MIN..GUARD_MAX first; it is a whole
+    // screen wider than the display, far past the widest beam.
+    //
+    // ES 3.0: one record per vector, read per instance (divisor 1), with
+    // corner = 0; a static 4-vertex strip supplies the corner — 8 bytes
+    // uploaded per vector.
+    // ES 2.0 fallback: no instancing, so the record is repeated for each
+    // of the 4 corners, each with its own corner bits, and a static index
+    // buffer stitches them into quads — 32 bytes per vector.
+    private static final int REC_BYTES = 8;
+    private static final int REC_INTS  = REC_BYTES / 4;
+    private static final int GUARD_MIN = -1024, GUARD_MAX = 2047;
+
+    // Vertex shader — expands a segment into a quad in pixel space, padded
+    // by the beam radius plus 1px of falloff on every side. vD carries the
+    // distance behind the start, past the end, across the axis, and the
+    // half-width, so the fragment shader can evaluate a capsule.
+    // The packed record is unpacked with floor(); vertex shaders run at
+    // highp, where all of these integers are exact.
     private static final String VERT_SRC =
-        "attribute vec2 aPos;\n" +
-        "attribute vec4 aColor;\n" +
-        "varying vec4 vColor;\n" +
+        "attribute vec4 aSeg;\n" +
+        "attribute float aCorner;\n" +
+        "uniform vec2 uView;\n" +
+        "uniform vec2 uHalfW;\n" +
+        "varying float vInt;\n" +
+        "varying vec4 vD;\n" +
         "void main() {\n" +
-        "  gl_Position = vec4(aPos, 0.0, 1.0);\n" +
-        "  gl_PointSize = 3.0;\n" +
-        "  vColor = aColor;\n" +
+        "  vec3 hi = floor(aSeg.xyz * vec3(0.0625, 0.0625, 0.125));\n" +
+        "  vec3 lo = aSeg.xyz - hi * vec3(16.0, 16.0, 8.0);\n" +
+        "  float c = lo.z + aCorner;\n" +
+        "  float kind = step(3.5, c);\n" +
+        "  c -= kind * 4.0;\n" +
+        "  float along = step(1.5, c);\n" +
+        "  float s = (c - along * 2.0) * 2.0 - 1.0;\n" +
+        "  vec2 px = uView * (1.0 / 1024.0);\n" +
+        "  vec2 p1 = hi.xy * px;\n" +
+        "  vec2 p2 = vec2(hi.z, aSeg.w) * px;\n" +
+        "  vec2 d = p2 - p1;\n" +
+        "  float len = length(d);\n" +
+        "  vec2 dir = len > 0.001 ? d / len : vec2(1.0, 0.0);\n" +
+        "  vec2 nrm = vec2(-dir.y, dir.x);\n" +
+        "  float hw = mix(uHalfW.x, uHalfW.y, kind);\n" +
+        "  float r = hw + 1.0;\n" +
+        "  float a = along * 2.0 - 1.0;\n" +
+        "  vec2 p = mix(p1, p2, along) + dir * (a * r) + nrm * (s * r);\n" +
+        "  float t = along * len + a * r;\n" +
+        "  vD = vec4(-t, t - len, s * r, hw);\n" +
+        "  vInt = (lo.x * 16.0 + lo.y) * (1.0 / 255.0);\n" +
+        "  gl_Position = vec4(p / uView * 2.0 - 1.0, 0.0, 1.0);\n" +
         "}\n";
 
-    // Fragment shader — simple phosphor green tint
+    // Fragment shader — capsule distance with a smooth edge, phosphor tint
+    // scaled by intensity, intensity as alpha. Distances are in pixels, so
+    // highp is used where available.
     private static final String FRAG_SRC =
+        "#ifdef GL_FRAGMENT_PRECISION_HIGH\n" +
+        "precision highp float;\n" +
+        "#else\n" +
         "precision mediump float;\n" +
-        "varying vec4 vColor;\n" +
+        "#endif\n" +
+        "uniform vec3 uTint;\n" +
+        "varying float vInt;\n" +
+        "varying vec4 vD;\n" +
         "void main() {\n" +
-        "  gl_FragColor = vColor;\n" +
+        "  float dx = max(max(vD.x, vD.y), 0.0);\n" +
+        "  float dist = length(vec2(dx, vD.z));\n" +
+        "  float a = vInt * (1.0 - smoothstep(vD.w * 0.5, vD.w + 1.0, dist));\n" +
+        "  gl_FragColor = vec4(uTint * a, a);\n" +
         "}\n";
 
-    private int prog, aPos, aColor;
+    // Phosphor green core
+    private static final float TINT_R = 0.1f, TINT_G = 1.0f, TINT_B = 0.3f;
 
-    // Per-frame buffers — pre-allocated, zero GC
-    private static final int MAX_VERTS = 65536;
-    private final float[]  lineBuf  = new float[MAX_VERTS];
-    private final float[]  lineCol  = new float[MAX_VERTS * 2];
-    private final float[]  ptBuf    = new float[MAX_VERTS / 4];
-    private final float[]  ptCol    = new float[MAX_VERTS / 2];
-    private int nLine = 0, nPt = 0;
+    private int prog, aSeg, aCorner, uTint, uView, uHalfW;
 
-    private FloatBuffer vbLine, cbLine, vbPt, cbPt;
+    // Beam diameter in pixels for vectors and points
+    private volatile float lineWidth = 1.5f, pointSize = 3.0f;
 
-    private volatile Machine machine;
-    private volatile Demos   demos;
+    // Full-screen quad: samples a texture, scales it and subtracts a bias.
+    // Used for the phosphor fade (gain = decay) and for presenting the
+    // accumulation buffer (gain = 1, bias = 0).
+    private static final String QUAD_VERT_SRC =
+        "attribute vec2 aQuad;\n" +
+        "varying vec2 vUv;\n" +
+        "void main() {\n" +
+        "  vUv = aQuad * 0.5 + 0.5;\n" +
+        "  gl_Position = vec4(aQuad, 0.0, 1.0);\n" +
+        "}\n";
+
+    private static final String QUAD_FRAG_SRC =
+        "precision mediump float;\n" +
+        "uniform sampler2D uTex;\n" +
+        "uniform float uGain;\n" +
+        "uniform float uBias;\n" +
+        "varying vec2 vUv;\n" +
+        "void main() {\n" +
+        "  gl_FragColor = max(texture2D(uTex, vUv) * uGain - uBias, 0.0);\n" +
+        "}\n";
+
+    private int quadProg, aQuad, uQuadTex, uQuadGain, uQuadBias;
+    private final int[] quadVbo = new int[1];
+    private static final float[] QUAD = { -1f,-1f,  1f,-1f,  -1f,1f,  1f,1f };
+
+    // Phosphor persistence: two screen-sized textures, ping-ponged.
+    // Each frame fades the previous one into the other and adds the new
+    // vectors on top, so old vectors decay without being re-emitted.
+    // The bias (~1.5 LSB of an 8-bit channel) lets the fade reach black.
+    private static final float FADE_BIAS = 1.5f / 255f;
+    private final int[] accTex = new int[2];
+    private final int[] accFbo = new int[2];
+    private int     accCur   = 0;
+    private boolean accReady = false;
+    private volatile float persistence = 0.5f;   // 0 = off, fraction kept per frame
+
+    // Bloom: the offscreen scene is downsampled to 1/bloomDiv resolution,
+    // blurred with a separable 9-tap Gaussian (5 bilinear fetches per pass)
+    // and added back on top. Cost is fixed per frame, independent of the
+    // number of vectors; a larger divisor makes it cheaper on weak GPUs.
+    // The downsample is a box filter over each bloom texel's whole
+    // footprint (F = surfW / bloomW scene texels a side): a 4×4 grid of
+    // taps at ±F/8 and ±3F/8, each bilinear tap averaging a 2×2 block,
+    // so thin vectors between taps cannot drop out of the glow. Below
+    // F = 4 both rings sit on the texel centres at ±F/4. Offsets come in
+    // uTap as (inner x, inner y, outer x, outer y), in texture units.
+    private static final String DOWN_FRAG_SRC =
+        "#ifdef GL_FRAGMENT_PRECISION_HIGH\n" +
+        "precision highp float;\n" +
+        "#else\n" +
+        "precision mediump float;\n" +
+        "#endif\n" +
+        "uniform sampler2D uTex;\n" +
+        "uniform vec4 uTap;\n" +
+        "varying vec2 vUv;\n" +
+        "vec4 row(float dy) {\n" +
+        "  return texture2D(uTex, vUv + vec2(-uTap.z, dy)) + texture2D(uTex, vUv + vec2(-uTap.x, dy))\n" +
+        "       + texture2D(uTex, vUv + vec2( uTap.x, dy)) + texture2D(uTex, vUv + vec2( uTap.z, dy));\n" +
+        "}\n" +
+        "void main() {\n" +
+        "  gl_FragColor = (row(-uTap.w) + row(-uTap.y) + row(uTap.y) + row(uTap.w)) * 0.0625;\n" +
+        "}\n";
+
+    private static final String BLUR_FRAG_SRC =
+        "precision mediump float;\n" +
+        "uniform sampler2D uTex;\n" +
+        "uniform vec2 uStep;\n" +
+        "varying vec2 vUv;\n" +
+        "void main() {\n" +
+        "  vec2 o1 = uStep * 1.3846154;\n" +
+        "  vec2 o2 = uStep * 3.2307692;\n" +
+        "  gl_FragColor = texture2D(uTex, vUv) * 0.2270270\n" +
+        "    + (texture2D(uTex, vUv + o1) + texture2D(uTex, vUv - o1)) * 0.3162162\n" +
+        "    + (texture2D(uTex, vUv + o2) + texture2D(uTex, vUv - o2)) * 0.0702703;\n" +
+        "}\n";
+
+    private static final String COMP_FRAG_SRC =
+        "precision mediump float;\n" +
+        "uniform sampler2D uTex;\n" +
+        "uniform sampler2D uBloom;\n" +
+        "uniform float uStrength;\n" +
+        "varying vec2 vUv;\n" +
+        "void main() {\n" +
+        "  gl_FragColor = texture2D(uTex, vUv) + texture2D(uBloom, vUv) * uStrength;\n" +
+        "}\n";
+
+    private int downProg, aDown, uDownTex, uDownTap;
+    private int blurProg, aBlur, uBlurTex, uBlurStep;
+    private int compProg, aComp, uCompTex, uCompBloom, uCompStrength;
+
+    private final int[] bloomTex = new int[2];
+    private final int[] bloomFbo = new int[2];
+    private int     bloomW = 1, bloomH = 1;
+    private boolean bloomReady = false;
+    private volatile boolean bloomEnabled  = true;
+    private volatile int     bloomDiv      = 4;
+    private volatile float   bloomStrength = 0.9f;
+    private volatile boolean bloomResize   = false;
+
+    // Per-frame vector data — pre-allocated, zero GC.
+    // Laid out like the VBO: quadRecs records per quad (1 instanced, 4
+    // on ES 2.0), two ints per record. Sized for the ES 2.0 layout.
+    private static final int MAX_QUADS = Machine.MAX_VEC;
+    private final int[] quadVtx = new int[MAX_QUADS * REC_INTS * 4];
+    private int nQuad = 0;
+
+    private static final boolean LE = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    // ES 3.0 instancing, decided per GL context in onSurfaceCreated
+    private boolean instanced = false;
+    private int quadRecs = 4, quadInts = 4 * REC_INTS;
+    private final int[] cornerVbo = new int[1];   // instanced: corners 0..3 as a strip
+
+    // Output of packVector()
+    private int rec0, rec1;
+
+    // ES 2.0: unsigned short indices address at most 64K vertices, so
+    // the quads are drawn in chunks of 16K, one glDrawElements() per
+    // chunk. The whole display list (32K vectors) takes one or two calls.
+    private static final int CHUNK_QUADS = 16384;
+
+    // GPU-resident vertex buffer, allocated once per GL context.
+    // quadVtx mirrors what was last uploaded; buildBuffers() only rewrites
+    // quads that changed and records the dirty range, so a static display
+    // list costs no uploads at all.
+    private final int[] vbo = new int[1];
+    private final int[] ibo = new int[1];
+    private int quadDirtyLo, quadDirtyHi;   // in quads
+
+    // Staging buffer for glBufferData/glBufferSubData
+    private IntBuffer sbQuad;
+
+    // Retained layers (VectorLayer): each snapshot gets its own static VBO,
+    // keyed by layer id and version, and is drawn beneath the frame's
+    // vectors. Unchanged layers cost no build and no upload; a slot is
+    // only refilled when its layer's version moves or it is evicted (LRU).
+    private static final int LAYER_SLOTS = Machine.MAX_LAYERS * 2;
+    private final int[]  layerVbo   = new int[LAYER_SLOTS];
+    private final int[]  layerId    = new int[LAYER_SLOTS];   // 0 = empty
+    private final int[]  layerVer   = new int[LAYER_SLOTS];
+    private final int[]  layerQuads = new int[LAYER_SLOTS];
+    private final long[] layerUsed  = new long[LAYER_SLOTS];  // last frame seq shown
+    private final int[]  drawSlot   = new int[Machine.MAX_LAYERS];
+    private int   nDrawSlot = 0;
+    private int[] layerVtx  = new int[0];                    // staging, grown on demand
+
+    private volatile EmuLoop   emu;
+    private volatile PerfStats perf;
     private volatile int     maxFps   = 30;
-    private volatile float   fpsActual = 0f;
-    private long fpsTime = 0; private int fpsCnt = 0;
+
+    // Frame pacing: redraws are requested from Choreographer vsync
+    // callbacks, at most once every frameDivisor vsyncs (the FPS cap).
+    // The GL thread never sleeps, and callbacks are only posted while a
+    // frame is pending, so an idle screen does not wake the main thread.
+    private final Choreographer.FrameCallback vsync = this::onVsync;
+    private final Runnable      postVsync = () -> Choreographer.getInstance().postFrameCallback(vsync);
+    private final AtomicBoolean vsyncPosted  = new AtomicBoolean(false);
+    private volatile boolean    framePending = false;
+    private long lastRenderVsync = 0;   // main thread only
+
+    // Frame-to-frame time of consecutive draws, last 120 frames, 0.5 ms buckets
+    private final RollingHistogram frameTimes = new RollingHistogram(120, 500, 200);
+    private long lastDrawNs = 0;
+    private static final long IDLE_GAP_NS = 250_000_000L;  // longer gaps = idle, not slow
 
     private int surfW = 1, surfH = 1;
 
+    // On-demand rendering state (GL thread only)
+    private long builtSeq = -1;   // DisplayFrame.seq currently in the VBOs
+    private int  fadeLeft = 0;    // extra redraws until the phosphor is dark
+
     public CrtView(Context ctx)                    { super(ctx); init(); }
     public CrtView(Context ctx, AttributeSet attrs) { super(ctx, attrs); init(); }
 
     private void init() {
         setEGLContextClientVersion(2);
         setRenderer(this);
-        setRenderMode(RENDERMODE_CONTINUOUSLY);
+        // Redraw only when EmuLoop publishes a changed frame (or while
+        // the phosphor is still fading) — static screens cost nothing.
+        // Requests are paced to vsync by Choreographer, see scheduleFrame().
+        setRenderMode(RENDERMODE_WHEN_DIRTY);
+    }
+
+    /** Frame source; the renderer only draws frames published by it. */
+    public void setEmuLoop(EmuLoop loop) {
+        emu = loop;
+        if (loop != null) loop.setFrameListener(this::scheduleFrame);
+        scheduleFrame();
     }
+    public void setPerfStats(PerfStats p) { perf = p; }
 
-    public void setMachine(Machine m, Demos d) { machine = m; demos = d; }
     public void setMaxFps(int fps) { maxFps = Math.max(1, Math.min(60, fps)); }
-    public float getActualFps() { return fpsActual; }
 
-    public int[] screenToPDS(float tx, float ty) {
-        return new int[]{
-            (int)(tx / getWidth()  * PDS),
-            (int)((1f - ty / getHeight()) * PDS)
-        };
+    /** Render rate derived from the mean of the recent frame-time window. */
+    public float getActualFps() {
+        int mean = frameTimes.mean();
+        return mean == 0 ? 0f : 1_000_000f / mean;
     }
 
+    /** Frame-time percentile in milliseconds, p in 0..1. */
+    public float getFrameTimeMs(float p) { return frameTimes.percentile(p) / 1000f; }
+
+    /** Fraction of the previous frame's light kept each frame (0 = clear every frame). */
+    public void setPersistence(float decay) { persistence = Math.max(0f, Math.min(0.95f, decay)); scheduleFrame(); }
+    public float getPersistence() { return persistence; }
+
+    /** Beam diameter in pixels for vectors and for points. */
+    public void setBeamWidth(float line, float point) {
+        lineWidth = Math.max(0.5f, Math.min(16f, line));
+        pointSize = Math.max(0.5f, Math.min(16f, point));
+        scheduleFrame();
+    }
+
+    public void setBloomEnabled(boolean on) { bloomEnabled = on; scheduleFrame(); }
+    public boolean isBloomEnabled() { return bloomEnabled; }
+    public void setBloomStrength(float k) { bloomStrength = Math.max(0f, Math.min(4f, k)); scheduleFrame(); }
+    public float getBloomStrength() { return bloomStrength; }
+
+    /** Bloom buffer resolution divisor: 2 = best quality, 8 = cheapest. */
+    public void setBloomDivisor(int div) {
+        int d = Math.max(2, Math.min(8, div));
+        if (d != bloomDiv) { bloomDiv = d; bloomResize = true; scheduleFrame(); }
+    }
+    public int getBloomDivisor() { return bloomDiv; }
+
+    /** View coordinates to PDS-1 screen coordinates (y up). Allocation-free. */
+    public int screenToPdsX(float tx) { return (int)(tx / getWidth() * PDS); }
+    public int screenToPdsY(float ty) { return (int)((1f - ty / getHeight()) * PDS); }
+
     // ── GLSurfaceView.Renderer ────────────────────────────────
 
     @Override
     public void onSurfaceCreated(GL10 unused, EGLConfig config) {
         prog = buildProg(VERT_SRC, FRAG_SRC);
-        aPos   = GLES20.glGetAttribLocation(prog, "aPos");
-        aColor = GLES20.glGetAttribLocation(prog, "aColor");
+        aSeg    = GLES20.glGetAttribLocation(prog, "aSeg");
+        aCorner = GLES20.glGetAttribLocation(prog, "aCorner");
+        uTint   = GLES20.glGetUniformLocation(prog, "uTint");
+        uView   = GLES20.glGetUniformLocation(prog, "uView");
+        uHalfW  = GLES20.glGetUniformLocation(prog, "uHalfW");
+
+        // An ES 2.0 context request returns a 3.x context where the
+        // driver has one; GL_VERSION says which.
+        String ver = GLES20.glGetString(GLES20.GL_VERSION);
+        boolean es3 = ver != null && ver.startsWith("OpenGL ES ")
+                   && ver.length() > 10 && ver.charAt(10) >= '3' && ver.charAt(10) <= '9';
+        if (es3 != instanced) {
+            instanced = es3;
+            quadRecs  = es3 ? 1 : 4;
+            quadInts  = quadRecs * REC_INTS;
+            java.util.Arrays.fill(quadVtx, 0);   // old layout; nothing matches a zero record
+        }
 
-        // Allocate NIO buffers (stay in native heap, zero GC)
-        vbLine = allocFB(MAX_VERTS);
-        cbLine = allocFB(MAX_VERTS * 2);
-        vbPt   = allocFB(MAX_VERTS / 4);
-        cbPt   = allocFB(MAX_VERTS / 2);
+        // Allocate NIO staging buffer (stays in native heap, zero GC)
+        if (sbQuad == null) sbQuad = allocIB(quadVtx.length);
+
+        // VBO: seeded with the full mirror array so GPU contents and
+        // the CPU-side copy agree from the first frame (also after the
+        // context was lost and recreated).
+        GLES20.glGenBuffers(1, vbo, 0);
+        sbQuad.position(0);
+        sbQuad.put(quadVtx).position(0);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbo[0]);
+        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, quadVtx.length * 4, sbQuad, GLES20.GL_DYNAMIC_DRAW);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+
+        // Static index buffer: two triangles per quad, same for every chunk
+        ShortBuffer ib = ByteBuffer.allocateDirect(CHUNK_QUADS * 6 * 2)
+            .order(ByteOrder.nativeOrder()).asShortBuffer();
+        for (int q = 0; q < CHUNK_QUADS; q++) {
+            int v = q * 4;
+            ib.put((short) v).put((short)(v + 1)).put((short)(v + 2))
+              .put((short)(v + 2)).put((short)(v + 1)).put((short)(v + 3));
+        }
+        ib.position(0);
+        GLES20.glGenBuffers(1, ibo, 0);
+        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, ibo[0]);
+        GLES20.glBufferData(GLES20.GL_ELEMENT_ARRAY_BUFFER, CHUNK_QUADS * 6 * 2, ib, GLES20.GL_STATIC_DRAW);
+        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+
+        FloatBuffer cb = ByteBuffer.allocateDirect(4 * 4)
+            .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        cb.put(new float[] { 0f, 1f, 2f, 3f }).position(0);
+        GLES20.glGenBuffers(1, cornerVbo, 0);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, cornerVbo[0]);
+        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, 4 * 4, cb, GLES20.GL_STATIC_DRAW);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+
+        quadProg  = buildProg(QUAD_VERT_SRC, QUAD_FRAG_SRC);
+        aQuad     = GLES20.glGetAttribLocation(quadProg, "aQuad");
+        uQuadTex  = GLES20.glGetUniformLocation(quadProg, "uTex");
+        uQuadGain = GLES20.glGetUniformLocation(quadProg, "uGain");
+        uQuadBias = GLES20.glGetUniformLocation(quadProg, "uBias");
+        FloatBuffer qb = ByteBuffer.allocateDirect(QUAD.length * 4)
+            .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        qb.put(QUAD).position(0);
+        GLES20.glGenBuffers(1, quadVbo, 0);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, quadVbo[0]);
+        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, QUAD.length * 4, qb, GLES20.GL_STATIC_DRAW);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+
+        downProg  = buildProg(QUAD_VERT_SRC, DOWN_FRAG_SRC);
+        aDown     = GLES20.glGetAttribLocation(downProg, "aQuad");
+        uDownTex  = GLES20.glGetUniformLocation(downProg, "uTex");
+        uDownTap  = GLES20.glGetUniformLocation(downProg, "uTap");
+        blurProg  = buildProg(QUAD_VERT_SRC, BLUR_FRAG_SRC);
+        aBlur     = GLES20.glGetAttribLocation(blurProg, "aQuad");
+        uBlurTex  = GLES20.glGetUniformLocation(blurProg, "uTex");
+        uBlurStep = GLES20.glGetUniformLocation(blurProg, "uStep");
+        compProg      = buildProg(QUAD_VERT_SRC, COMP_FRAG_SRC);
+        aComp         = GLES20.glGetAttribLocation(compProg, "aQuad");
+        uCompTex      = GLES20.glGetUniformLocation(compProg, "uTex");
+        uCompBloom    = GLES20.glGetUniformLocation(compProg, "uBloom");
+        uCompStrength = GLES20.glGetUniformLocation(compProg, "uStrength");
+
+        // Old GL objects died with the previous context
+        accReady = false;
+        bloomReady = false;
+        java.util.Arrays.fill(layerVbo, 0);
+        java.util.Arrays.fill(layerId, 0);
+        nDrawSlot = 0;
+        builtSeq = -1;   // re-upload the layers of the current frame
 
         GLES20.glClearColor(0f, 0f, 0f, 1f);
         GLES20.glEnable(GLES20.GL_BLEND);
@@ -103,103 +452,382 @@ public class CrtView extends GLSurfaceView implements GLSurfaceView.Renderer {
     public void onSurfaceChanged(GL10 unused, int w, int h) {
         GLES20.glViewport(0, 0, w, h);
         surfW = w; surfH = h;
+
+        if (accReady) {
+            GLES20.glDeleteFramebuffers(2, accFbo, 0);
+            GLES20.glDeleteTextures(2, accTex, 0);
+        }
+        accReady = createTarget(accTex, accFbo, 0, w, h)
+                 & createTarget(accTex, accFbo, 1, w, h);
+        accCur = 0;
+        createBloomTargets();
+    }
+
+    private void createBloomTargets() {
+        if (bloomReady) {
+            GLES20.glDeleteFramebuffers(2, bloomFbo, 0);
+            GLES20.glDeleteTextures(2, bloomTex, 0);
+        }
+        int div = bloomDiv;
+        bloomW = Math.max(1, surfW / div);
+        bloomH = Math.max(1, surfH / div);
+        bloomReady = createTarget(bloomTex, bloomFbo, 0, bloomW, bloomH)
+                   & createTarget(bloomTex, bloomFbo, 1, bloomW, bloomH);
+        bloomResize = false;
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
     }
 
     @Override
     public void onDrawFrame(GL10 unused) {
         long t0 = System.nanoTime();
-        Machine m = machine; Demos d = demos;
-        if (m == null || d == null) { GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT); return; }
+        if (lastDrawNs != 0 && t0 - lastDrawNs < IDLE_GAP_NS)
+            frameTimes.add((int)((t0 - lastDrawNs) / 1000L));
+        lastDrawNs = t0;
+        EmuLoop loop = emu;
+        if (loop == null) { GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT); return; }
 
-        // Clear screen every frame — no accumulation artifacts
-        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+        // Emulation runs on its own thread — just take the latest frame
+        DisplayFrame f = loop.latest();
+        float decay = persistence;
 
-        m.dlClear();
-        d.runCurrentDemo();
+        PerfStats ps = perf;
 
         // Build and draw vectors — single pass, phosphor green
-        buildBuffers(m);
+        if (f.seq != builtSeq) {
+            long tb = System.nanoTime();
+            buildBuffers(f);
+            if (ps != null) ps.record(PerfStats.BUILD, tb);
+            long tu = System.nanoTime();
+            int up = uploadDirty() + uploadLayers(f);
+            if (ps != null) { ps.record(PerfStats.UPLOAD, tu); ps.addUploaded(up); }
+            builtSeq = f.seq;
+            fadeLeft = fadeFrames(decay);
+        }
+        long td = System.nanoTime();
 
-        if (nLine > 0) drawVectors(false, 1.5f);
-        if (nPt   > 0) drawVectors(true,  3.0f);
+        if (bloomResize) createBloomTargets();
 
-        // FPS
-        fpsCnt++;
-        long now = System.nanoTime();
-        if (now - fpsTime >= 1_000_000_000L) {
-            fpsActual = fpsCnt;
-            fpsCnt = 0;
-            fpsTime = now;
+        boolean bloom = bloomEnabled && bloomReady;
+        if ((decay > 0f || bloom) && accReady) {
+            drawOffscreen(decay, bloom);
+        } else {
+            // Clear screen every frame — no accumulation artifacts
+            GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+            drawScene();
         }
 
-        // FPS cap (GLSurfaceView doesn't cap automatically)
-        long budget = 1_000_000_000L / maxFps;
-        long sleep  = (budget - (System.nanoTime() - t0)) / 1_000_000L;
-        if (sleep > 1) try { Thread.sleep(sleep); } catch (InterruptedException ignored) {}
+        if (ps != null) { ps.record(PerfStats.DRAW, td); ps.record(PerfStats.FRAME, t0); }
+
+        // Keep redrawing until the fade has reached black
+        if (fadeLeft > 0) { fadeLeft--; if (decay > 0f) scheduleFrame(); }
+    }
+
+    // ── Frame pacing ──────────────────────────────────────────
+
+    /** Ask for a redraw on the next vsync the FPS cap allows. Any thread. */
+    private void scheduleFrame() {
+        framePending = true;
+        if (vsyncPosted.compareAndSet(false, true)) post(postVsync);
+    }
+
+    private void onVsync(long frameTimeNanos) {
+        Display disp = getDisplay();
+        float hz = disp != null ? disp.getRefreshRate() : 60f;
+        if (hz < 1f) hz = 60f;
+        long period  = (long)(1_000_000_000.0 / hz);
+        int  divisor = Math.max(1, Math.round(hz / maxFps));
+
+        if (framePending && frameTimeNanos - lastRenderVsync >= period * divisor - period / 2) {
+            framePending    = false;
+            lastRenderVsync = frameTimeNanos;
+            requestRender();
+        }
+        if (framePending) { Choreographer.getInstance().postFrameCallback(vsync); return; }
+
+        vsyncPosted.set(false);
+        // A request may have slipped in between the check and the reset
+        if (framePending && vsyncPosted.compareAndSet(false, true))
+            Choreographer.getInstance().postFrameCallback(vsync);
     }
 
     // ── Rendering helpers ─────────────────────────────────────
 
-    private void buildBuffers(Machine m) {
-        nLine = 0; nPt = 0;
-        int nv = m.nvec;
-        float scaleX = 2f / PDS, scaleY = 2f / PDS;
+    /** Frames until decay^n drops below one 8-bit step. */
+    private static int fadeFrames(float decay) {
+        if (decay <= 0f) return 0;
+        return (int) Math.ceil(Math.log(1.0 / 255.0) / Math.log(decay)) + 1;
+    }
+
+    private void drawScene() {
+        if (nQuad > 0 || nDrawSlot > 0) drawVectors();
+    }
+
+    /**
+     * Render into an accumulation texture, then present it. With
+     * persistence the previous texture is faded in first and the new
+     * vectors are added on top; otherwise the target is just cleared.
+     * With bloom, a blurred low-resolution copy is composited on top.
+     */
+    private void drawOffscreen(float decay, boolean bloom) {
+        int prev = accCur, cur = accCur ^ 1;
+
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, accFbo[cur]);
+        if (decay > 0f) {
+            GLES20.glDisable(GLES20.GL_BLEND);
+            drawQuad(accTex[prev], decay, FADE_BIAS);
+            GLES20.glEnable(GLES20.GL_BLEND);
+            GLES20.glBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE);
+        } else {
+            GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+        }
+        drawScene();
+
+        GLES20.glDisable(GLES20.GL_BLEND);
+        if (bloom) drawBloom(accTex[cur]);
+
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+        if (bloom) drawComposite(accTex[cur], bloomTex[0]);
+        else       drawQuad(accTex[cur], 1f, 0f);
+
+        GLES20.glEnable(GLES20.GL_BLEND);
+        GLES20.glBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+        accCur = cur;
+    }
+
+    /** Downsample src into bloomTex[0], blur H into [1], blur V back into [0]. */
+    private void drawBloom(int src) {
+        GLES20.glViewport(0, 0, bloomW, bloomH);
+
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, bloomFbo[0]);
+        GLES20.glUseProgram(downProg);
+        bindTex(0, src, uDownTex);
+        float fx = (float) surfW / bloomW, fy = (float) surfH / bloomH;
+        float ix = fx < 4f ? fx / 4f : fx / 8f, iy = fy < 4f ? fy / 4f : fy / 8f;
+        float ox = fx < 4f ? ix : ix * 3f,      oy = fy < 4f ? iy : iy * 3f;
+        GLES20.glUniform4f(uDownTap, ix / surfW, iy / surfH, ox / surfW, oy / surfH);
+        drawQuadGeometry(aDown);
+
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, bloomFbo[1]);
+        GLES20.glUseProgram(blurProg);
+        bindTex(0, bloomTex[0], uBlurTex);
+        GLES20.glUniform2f(uBlurStep, 1f / bloomW, 0f);
+        drawQuadGeometry(aBlur);
+
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, bloomFbo[0]);
+        bindTex(0, bloomTex[1], uBlurTex);
+        GLES20.glUniform2f(uBlurStep, 0f, 1f / bloomH);
+        drawQuadGeometry(aBlur);
+
+        GLES20.glViewport(0, 0, surfW, surfH);
+    }
+
+    private void drawComposite(int scene, int glow) {
+        GLES20.glUseProgram(compProg);
+        bindTex(0, scene, uCompTex);
+        bindTex(1, glow,  uCompBloom);
+        GLES20.glUniform1f(uCompStrength, bloomStrength);
+        drawQuadGeometry(aComp);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+    }
+
+    private void drawQuad(int tex, float gain, float bias) {
+        GLES20.glUseProgram(quadProg);
+        bindTex(0, tex, uQuadTex);
+        GLES20.glUniform1f(uQuadGain, gain);
+        GLES20.glUniform1f(uQuadBias, bias);
+        drawQuadGeometry(aQuad);
+    }
+
+    private static void bindTex(int unit, int tex, int uniform) {
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0 + unit);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, tex);
+        GLES20.glUniform1i(uniform, unit);
+    }
+
+    private void drawQuadGeometry(int attrib) {
+        GLES20.glEnableVertexAttribArray(attrib);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, quadVbo[0]);
+        GLES20.glVertexAttribPointer(attrib, 2, GLES20.GL_FLOAT, false, 0, 0);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+        GLES20.glDisableVertexAttribArray(attrib);
+    }
+
+    private void buildBuffers(DisplayFrame f) {
+        nQuad = 0;
+        quadDirtyLo = Integer.MAX_VALUE;
+        quadDirtyHi = 0;
+        int nv = Math.min(f.n, MAX_QUADS);
 
         for (int i = 0; i < nv; i++) {
-            int br = m.vbr[i];
-            if (br < 10) continue;
-
-            float brf = br / 255f;
-            // Phosphor green core: bright green
-            float r = 0.1f * brf, g = 1.0f * brf, b = 0.3f * brf, a = brf;
-
-            float x1 =  m.vx1[i] * scaleX - 1f;
-            float y1 =  m.vy1[i] * scaleY - 1f;
-
-            if (m.vpt[i]) {
-                if (nPt + 2 < ptBuf.length) {
-                    ptBuf[nPt]     = x1; ptBuf[nPt+1]   = y1;
-                    ptCol[nPt*2]   = r;  ptCol[nPt*2+1] = g;
-                    ptCol[nPt*2+2] = b;  ptCol[nPt*2+3] = a;
-                    nPt += 2;
-                }
-            } else {
-                float x2 =  m.vx2[i] * scaleX - 1f;
-                float y2 =  m.vy2[i] * scaleY - 1f;
-                if (nLine + 4 < lineBuf.length) {
-                    lineBuf[nLine]   = x1; lineBuf[nLine+1] = y1;
-                    lineBuf[nLine+2] = x2; lineBuf[nLine+3] = y2;
-                    int c = nLine * 2;
-                    lineCol[c]   = r; lineCol[c+1] = g; lineCol[c+2] = b; lineCol[c+3] = a;
-                    lineCol[c+4] = r; lineCol[c+5] = g; lineCol[c+6] = b; lineCol[c+7] = a;
-                    nLine += 4;
-                }
+            if (!packVector(f.x1[i], f.y1[i], f.x2[i], f.y2[i], f.pt[i], f.br[i])) continue;
+            putQuad(nQuad++);
+        }
+    }
+
+    /**
+     * Pack one vector into rec0/rec1 (see the record layout at the top).
+     * Returns false if it is too dim to see or lies outside the guard box.
+     */
+    private boolean packVector(int x1, int y1, int x2, int y2, boolean pt, int br) {
+        if (br < 10) return false;
+        int in = br > 255 ? 255 : br;
+        if (pt) { x2 = x1; y2 = y1; }
+        if (!inGuard(x1) || !inGuard(y1) || !inGuard(x2) || !inGuard(y2)) {
+            if (pt || !clipToGuard(x1, y1, x2, y2)) return false;
+            x1 = clip[0]; y1 = clip[1]; x2 = clip[2]; y2 = clip[3];
+        }
+        rec0 = packPos(x1 << 4 | in >> 4, y1 << 4 | in & 15);
+        rec1 = packPos(x2 << 3 | (pt ? 4 : 0), y2);
+        return true;
+    }
+
+    private static boolean inGuard(int v) { return v >= GUARD_MIN && v <= GUARD_MAX; }
+
+    private final int[] clip = new int[4];
+    private float clipT0, clipT1;
+
+    /** Liang-Barsky clip of a segment to the guard box into clip[]; false if nothing is left. */
+    private boolean clipToGuard(int x1, int y1, int x2, int y2) {
+        float dx = x2 - x1, dy = y2 - y1;
+        clipT0 = 0f; clipT1 = 1f;
+        if (!clipEdge(-dx, x1 - GUARD_MIN) || !clipEdge(dx, GUARD_MAX - x1)
+         || !clipEdge(-dy, y1 - GUARD_MIN) || !clipEdge(dy, GUARD_MAX - y1)) return false;
+        clip[0] = clampGuard(Math.round(x1 + clipT0 * dx)); clip[1] = clampGuard(Math.round(y1 + clipT0 * dy));
+        clip[2] = clampGuard(Math.round(x1 + clipT1 * dx)); clip[3] = clampGuard(Math.round(y1 + clipT1 * dy));
+        return true;
+    }
+
+    private boolean clipEdge(float p, float q) {
+        if (p == 0f) return q >= 0f;
+        float t = q / p;
+        if (p < 0f) { if (t > clipT1) return false; if (t > clipT0) clipT0 = t; }
+        else        { if (t < clipT0) return false; if (t < clipT1) clipT1 = t; }
+        return true;
+    }
+
+    private static int clampGuard(int v) { return v < GUARD_MIN ? GUARD_MIN : v > GUARD_MAX ? GUARD_MAX : v; }
+
+    /** Two GL_SHORTs (x, y) as they sit in memory, packed into one int. */
+    private static int packPos(int x, int y) {
+        return LE ? (x & 0xFFFF) | (y << 16)
+                  : (x << 16) | (y & 0xFFFF);
+    }
+
+    /** Store rec0/rec1 as quad q; skipped when its first record is unchanged. */
+    private void putQuad(int q) {
+        int o = q * quadInts;
+        if (quadVtx[o] == rec0 && quadVtx[o+1] == rec1) return;
+        writeQuad(quadVtx, o);
+        if (q < quadDirtyLo) quadDirtyLo = q;
+        if (q >= quadDirtyHi) quadDirtyHi = q + 1;
+    }
+
+    /** rec0/rec1 once (instanced) or once per corner with the corner in x2's low bits. */
+    private void writeQuad(int[] dst, int o) {
+        for (int c = 0; c < quadRecs; c++, o += REC_INTS) {
+            dst[o]   = rec0;
+            dst[o+1] = rec1 + packPos(c, 0);
+        }
+    }
+
+    /** Bind each of the frame's layers to a VBO slot, uploading only new versions; returns records sent. */
+    private int uploadLayers(DisplayFrame f) {
+        nDrawSlot = 0;
+        int sent = 0;
+        for (int l = 0; l < f.nLayers; l++) {
+            VectorLayer.Snapshot s = f.layers[l];
+            int slot = -1, lru = -1;
+            for (int k = 0; k < LAYER_SLOTS; k++) {
+                if (layerId[k] == s.id) { slot = k; break; }
+                if (layerUsed[k] != f.seq && (lru < 0 || layerUsed[k] < layerUsed[lru])) lru = k;
             }
+            if (slot < 0) { if (lru < 0) continue; slot = lru; }
+            if (layerId[slot] != s.id || layerVer[slot] != s.version) sent += uploadLayer(slot, s);
+            layerUsed[slot] = f.seq;
+            drawSlot[nDrawSlot++] = slot;
         }
+        return sent;
+    }
 
-        vbLine.position(0); vbLine.put(lineBuf, 0, nLine).position(0);
-        cbLine.position(0); cbLine.put(lineCol, 0, nLine*2).position(0);
-        vbPt.position(0);   vbPt.put(ptBuf,   0, nPt).position(0);
-        cbPt.position(0);   cbPt.put(ptCol,   0, nPt*2).position(0);
+    private int uploadLayer(int slot, VectorLayer.Snapshot s) {
+        int nq = Math.min(s.n, MAX_QUADS);
+        if (layerVtx.length < nq * quadInts) layerVtx = new int[nq * quadInts];
+        int q = 0;
+        for (int i = 0; i < nq; i++) {
+            if (!packVector(s.x1[i], s.y1[i], s.x2[i], s.y2[i], s.pt[i], s.br[i])) continue;
+            writeQuad(layerVtx, q++ * quadInts);
+        }
+        if (layerVbo[slot] == 0) GLES20.glGenBuffers(1, layerVbo, slot);
+        sbQuad.position(0);
+        sbQuad.put(layerVtx, 0, q * quadInts).position(0);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, layerVbo[slot]);
+        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, Math.max(1, q * quadInts) * 4, sbQuad, GLES20.GL_STATIC_DRAW);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        layerId[slot] = s.id; layerVer[slot] = s.version; layerQuads[slot] = q;
+        return q * quadRecs;
     }
 
-    private void drawVectors(boolean points, float lineWidth) {
-        GLES20.glUseProgram(prog);
-        GLES20.glLineWidth(lineWidth);
+    /** Upload only the quad range touched by the last buildBuffers(); returns records sent. */
+    private int uploadDirty() {
+        if (quadDirtyLo >= quadDirtyHi) return 0;
+        int off = quadDirtyLo * quadInts, len = (quadDirtyHi - quadDirtyLo) * quadInts;
+        sbQuad.position(off);
+        sbQuad.put(quadVtx, off, len);
+        sbQuad.position(off);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbo[0]);
+        GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, off * 4, len * 4, sbQuad);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        return (quadDirtyHi - quadDirtyLo) * quadRecs;
+    }
 
-        FloatBuffer vb = points ? vbPt   : vbLine;
-        FloatBuffer cb = points ? cbPt   : cbLine;
-        int count      = points ? nPt/2  : nLine/2;
+    private void drawVectors() {
+        GLES20.glUseProgram(prog);
+        GLES20.glUniform3f(uTint, TINT_R, TINT_G, TINT_B);
+        GLES20.glUniform2f(uView, surfW, surfH);
+        GLES20.glUniform2f(uHalfW, lineWidth * 0.5f, pointSize * 0.5f);
+
+        GLES20.glEnableVertexAttribArray(aSeg);
+        if (instanced) {
+            GLES20.glEnableVertexAttribArray(aCorner);
+            GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, cornerVbo[0]);
+            GLES20.glVertexAttribPointer(aCorner, 1, GLES20.GL_FLOAT, false, 0, 0);
+            GLES30.glVertexAttribDivisor(aSeg, 1);
+        } else {
+            GLES20.glVertexAttrib1f(aCorner, 0f);   // corner is in each record
+            GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, ibo[0]);
+        }
 
-        GLES20.glEnableVertexAttribArray(aPos);
-        GLES20.glEnableVertexAttribArray(aColor);
-        GLES20.glVertexAttribPointer(aPos,   2, GLES20.GL_FLOAT, false, 0, vb);
-        GLES20.glVertexAttribPointer(aColor, 4, GLES20.GL_FLOAT, false, 0, cb);
+        // Retained layers first (scenery), then this frame's vectors
+        for (int i = 0; i < nDrawSlot; i++) {
+            int slot = drawSlot[i];
+            drawQuads(layerVbo[slot], layerQuads[slot]);
+        }
+        drawQuads(vbo[0], nQuad);
 
-        GLES20.glDrawArrays(points ? GLES20.GL_POINTS : GLES20.GL_LINES, 0, count);
+        if (instanced) {
+            GLES30.glVertexAttribDivisor(aSeg, 0);   // the quad programs reuse the index
+            GLES20.glDisableVertexAttribArray(aCorner);
+        }
+        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        GLES20.glDisableVertexAttribArray(aSeg);
+    }
 
-        GLES20.glDisableVertexAttribArray(aPos);
-        GLES20.glDisableVertexAttribArray(aColor);
+    /** Draw nq quads from buffer b: one instanced strip, or index-buffer-sized chunks. */
+    private void drawQuads(int b, int nq) {
+        if (nq <= 0) return;
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, b);
+        if (instanced) {
+            GLES20.glVertexAttribPointer(aSeg, 4, GLES20.GL_SHORT, false, REC_BYTES, 0);
+            GLES30.glDrawArraysInstanced(GLES20.GL_TRIANGLE_STRIP, 0, 4, nq);
+            return;
+        }
+        for (int q0 = 0; q0 < nq; q0 += CHUNK_QUADS) {
+            GLES20.glVertexAttribPointer(aSeg, 4, GLES20.GL_SHORT, false, REC_BYTES, q0 * 4 * REC_BYTES);
+            int n = Math.min(CHUNK_QUADS, nq - q0);
+            GLES20.glDrawElements(GLES20.GL_TRIANGLES, n * 6, GLES20.GL_UNSIGNED_SHORT, 0);
+        }
     }
 
     // ── GL utilities ──────────────────────────────────────────
@@ -221,9 +849,30 @@ public class CrtView extends GLSurfaceView implements GLSurfaceView.Renderer {
         return s;
     }
 
-    private static FloatBuffer allocFB(int floats) {
-        return ByteBuffer.allocateDirect(floats * 4)
+    /** Create an RGBA texture of w×h with an FBO rendering into it, cleared to black. */
+    private static boolean createTarget(int[] tex, int[] fbo, int i, int w, int h) {
+        GLES20.glGenTextures(1, tex, i);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, tex[i]);
+        GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, w, h, 0,
+                            GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, null);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+
+        GLES20.glGenFramebuffers(1, fbo, i);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, fbo[i]);
+        GLES20.glFramebufferTexture2D(GLES20.GL_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0,
+                                      GLES20.GL_TEXTURE_2D, tex[i], 0);
+        boolean ok = GLES20.glCheckFramebufferStatus(GLES20.GL_FRAMEBUFFER)
+                     == GLES20.GL_FRAMEBUFFER_COMPLETE;
+        if (ok) GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+        return ok;
+    }
+
+    private static IntBuffer allocIB(int ints) {
+        return ByteBuffer.allocateDirect(ints * 4)
             .order(ByteOrder.nativeOrder())
-            .asFloatBuffer();
+            .asIntBuffer();
     }
 }
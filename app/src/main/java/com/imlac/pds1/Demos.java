@@ -8,17 +8,27 @@ package com.imlac.pds1;
 public class Demos {
 
     public enum Type {
-        LINES, STAR, LISSAJOUS, TEXT, BOUNCE, MAZE, SPACEWAR, SCOPE, USER_ASM, MAZEWAR, SNAKE
+        LINES, STAR, LISSAJOUS, TEXT, BOUNCE, MAZE, SPACEWAR, SCOPE, USER_ASM, MAZEWAR, SNAKE, SWARM, PONG
     }
 
+    /** Simulation rate: step() advances every demo by one tick of 1/SIM_HZ s. */
+    public static final int SIM_HZ = 30;
+
     private final Machine M;
-    private Type   current = Type.STAR;
+    private volatile Type current = Type.STAR;
+    private volatile int  selects = 0;      // setDemo() calls (UI thread)
+    private int    seenSelects = 0;         // emulation thread
     private double angle   = 0;
     private double t       = 0;
-    private int    frame   = 0;
+    private int    frame   = 0;     // simulation ticks, not rendered frames
+    private static final double ANGLE_STEP = 0.018;
+
+    // Interpolation factor for the current draw(): 0 = previous tick, 1 = latest
+    private float alpha = 1f;
 
     // Demo state
     private double ballX = 512, ballY = 512, ballVx = 7.3, ballVy = 5.8;
+    private double ballPX = 512, ballPY = 512;   // position one tick earlier
     private final double[] trailX = new double[16];
     private final double[] trailY = new double[16];
     private int trailN = 0;
@@ -29,12 +39,13 @@ public class Demos {
 
     private double sw1x=350,sw1y=512,sw1a=0,sw1vx=0,sw1vy=0;
     private double sw2x=674,sw2y=512,sw2a=Math.PI,sw2vx=0,sw2vy=0;
+    private double sw1px=350,sw1py=512,sw2px=674,sw2py=512;   // one tick earlier
     private double[] bx=new double[4],by=new double[4];
     private double[] bvx=new double[4],bvy=new double[4];
     private int[]    blife=new int[4];
     private boolean  swInit=false;
 
-    private double textScroll = 0;
+    private double textScroll = 0, textScrollPrev = 0;
 
     // Maze War game instance
     private MazeWarGame mazeWarGame = null;
@@ -44,10 +55,64 @@ public class Demos {
 
     public Demos(Machine machine) { this.M = machine; }
 
-    public void setDemo(Type t) { this.current = t; }
+    // Demo randomness (maze layout, snake food); setSeed() makes runs repeatable
+    private final Rng rng = new Rng(Rng.newSeed());
+
+    /** Reseed demo randomness and rebuild seeded scenery. */
+    public void setSeed(long seed) { rng.seed(seed); mazeReady = false; snInit = false; swarmInit = false; }
+
+    private PerfStats perf;
+    public void setPerfStats(PerfStats p) { perf = p; }
+
+    public void setDemo(Type t) { this.current = t; selects++; }
+
+    /** Emulation thread: react to setDemo() calls since the last step() / draw(). */
+    private void syncSelection() {
+        int s = selects;
+        if (s == seenSelects) return;
+        seenSelects = s;
+        if (pongGame != null) pongGame.stop();   // PONG rebuilds when next selected
+    }
     public Type getDemo() { return current; }
 
+    /** One simulation tick followed by drawing the result (no interpolation). */
     public void runCurrentDemo() {
+        step();
+        draw(1f);
+    }
+
+    /**
+     * Advance the current demo by one fixed tick. Game speed depends only
+     * on how often this is called (SIM_HZ), never on the render rate.
+     */
+    public void step() {
+        syncSelection();
+        switch (current) {
+            case TEXT:      stepText();      break;
+            case BOUNCE:    stepBounce();    break;
+            case SPACEWAR:  stepSpacewar();  break;
+            case MAZEWAR:
+                if (mazeWarGame == null) mazeWarGame = new MazeWarGame(M);
+                mazeWarGame.tick();
+                break;
+            case SNAKE:     stepSnake();     break;
+            case SWARM:     stepSwarm();     break;
+            case PONG:      pong().tick();   break;
+            default: break;   // the others only depend on angle / t
+        }
+        angle += ANGLE_STEP;
+        t     += 0.016;
+        frame++;
+    }
+
+    /**
+     * Fill the display list from the current state. alpha in 0..1 places
+     * smoothly moving objects between the previous and the latest tick,
+     * so rendering faster than SIM_HZ still shows motion on every frame.
+     */
+    public void draw(float alpha) {
+        this.alpha = alpha;
+        syncSelection();
         switch (current) {
             case LINES:     demoLines();     break;
             case STAR:      demoStar();      break;
@@ -62,15 +127,30 @@ public class Demos {
             // On real Imlac the DP runs continuously; we replay it per frame.
             M.dp_pc   = M.dp_start;
             M.dp_halt = false;
-            for (int i = 0; i < 8192 && !M.dp_halt; i++)
-                M.dpStep();
+            { long t0 = System.nanoTime();
+              M.dpRun(8192);
+              if (perf != null) perf.record(PerfStats.DP, t0); }
             break;
         case MAZEWAR:   demoMazeWar();  break;
         case SNAKE:     demoSnake();    break;
+        case SWARM:     demoSwarm();    break;
+        case PONG:
+            // Patched DP program; only segments whose words changed are re-run
+            { long t0 = System.nanoTime();
+              pong().draw();
+              if (perf != null) perf.record(PerfStats.DP, t0); }
+            break;
         }
-        angle += 0.018;
-        t     += 0.016;
-        frame++;
+    }
+
+    /** Interpolated rotation angle for drawing. */
+    private double drawAngle() { return angle - ANGLE_STEP * (1f - alpha); }
+
+    private double lerp(double prev, double cur) { return prev + (cur - prev) * alpha; }
+
+    /** Like lerp(), but positions that wrapped around the screen are not smeared. */
+    private double lerpWrap(double prev, double cur) {
+        return Math.abs(cur - prev) > 512 ? cur : lerp(prev, cur);
     }
 
     // ── Vector helpers ────────────────────────────────────────
@@ -85,136 +165,88 @@ public class Demos {
         vl(x+w,y+h,x,y+h,b); vl(x,y+h,x,y,b);
     }
     private void circle(int cx, int cy, int r, int segs, float b) {
-        double prev_a = 0;
-        int px = cx+(int)(Math.cos(0)*r), py = cy+(int)(Math.sin(0)*r);
-        for (int i = 1; i <= segs; i++) {
-            double a = (double)i/segs * 2*Math.PI;
-            int nx = cx+(int)(Math.cos(a)*r);
-            int ny = cy+(int)(Math.sin(a)*r);
-            vl(px,py,nx,ny,b);
-            px=nx; py=ny;
-        }
-    }
-
-    // ── Vector font ───────────────────────────────────────────
-    // Strokes: {x1,y1,x2,y2} on a 4×4 grid, Y-up
-    private static final float[][][] FONT = {
-        {/* A */{0,0,2,4},{2,4,4,0},{1,2,3,2}},
-        {/* B */{0,0,0,4},{0,4,2,4},{0,2,2,2},{0,0,2,0},{2,4,3,3},{3,3,2,2},{2,2,3,1},{3,1,2,0}},
-        {/* C */{3,4,0,4},{0,4,0,0},{0,0,3,0}},
-        {/* D */{0,0,0,4},{0,4,2,4},{2,4,4,2},{4,2,2,0},{2,0,0,0}},
-        {/* E */{0,0,0,4},{0,4,4,4},{0,2,3,2},{0,0,4,0}},
-        {/* F */{0,0,0,4},{0,4,4,4},{0,2,3,2}},
-        {/* G */{3,4,0,4},{0,4,0,0},{0,0,4,0},{4,0,4,2},{4,2,2,2}},
-        {/* H */{0,0,0,4},{4,0,4,4},{0,2,4,2}},
-        {/* I */{1,0,3,0},{1,4,3,4},{2,0,2,4}},
-        {/* J */{1,4,3,4},{3,4,3,0},{3,0,0,0}},
-        {/* K */{0,0,0,4},{0,2,4,4},{0,2,4,0}},
-        {/* L */{0,4,0,0},{0,0,4,0}},
-        {/* M */{0,0,0,4},{0,4,2,2},{2,2,4,4},{4,4,4,0}},
-        {/* N */{0,0,0,4},{0,4,4,0},{4,0,4,4}},
-        {/* O */{0,0,4,0},{4,0,4,4},{4,4,0,4},{0,4,0,0}},
-        {/* P */{0,0,0,4},{0,4,3,4},{3,4,4,3},{4,3,3,2},{3,2,0,2}},
-        {/* Q */{0,0,4,0},{4,0,4,4},{4,4,0,4},{0,4,0,0},{2,2,4,0}},
-        {/* R */{0,0,0,4},{0,4,3,4},{3,4,4,3},{4,3,3,2},{3,2,0,2},{2,2,4,0}},
-        {/* S */{4,4,0,4},{0,4,0,2},{0,2,4,2},{4,2,4,0},{4,0,0,0}},
-        {/* T */{0,4,4,4},{2,4,2,0}},
-        {/* U */{0,4,0,0},{0,0,4,0},{4,0,4,4}},
-        {/* V */{0,4,2,0},{2,0,4,4}},
-        {/* W */{0,4,1,0},{1,0,2,2},{2,2,3,0},{3,0,4,4}},
-        {/* X */{0,0,4,4},{4,0,0,4}},
-        {/* Y */{0,4,2,2},{4,4,2,2},{2,2,2,0}},
-        {/* Z */{0,4,4,4},{4,4,0,0},{0,0,4,0}},
-        {/* 0 */{0,0,4,0},{4,0,4,4},{4,4,0,4},{0,4,0,0},{0,0,4,4}},
-        {/* 1 */{1,4,2,4},{2,4,2,0},{1,0,3,0}},
-        {/* 2 */{0,4,4,4},{4,4,4,3},{4,3,0,1},{0,1,0,0},{0,0,4,0}},
-        {/* 3 */{0,4,4,4},{4,4,4,0},{0,0,4,0},{0,2,4,2}},
-        {/* 4 */{0,4,0,2},{0,2,4,2},{4,4,4,0}},
-        {/* 5 */{4,4,0,4},{0,4,0,2},{0,2,4,2},{4,2,4,0},{4,0,0,0}},
-        {/* 6 */{4,4,0,4},{0,4,0,0},{0,0,4,0},{4,0,4,2},{4,2,0,2}},
-        {/* 7 */{0,4,4,4},{4,4,2,0}},
-        {/* 8 */{0,0,4,0},{4,0,4,4},{4,4,0,4},{0,4,0,0},{0,2,4,2}},
-        {/* 9 */{4,0,4,4},{4,4,0,4},{0,4,0,2},{0,2,4,2}},
-        {/* - */{0,2,4,2}},
-        {/* . */{2,0,2,0}},
-        {/* : */{2,1,2,1},{2,3,2,3}},
-        {/* ! */{2,4,2,1},{2,0,2,0}},
-        {/* SPACE */},
-    };
-    private static final String CHARSET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789-.:! ";
-
-    private void vchar(char c, int ox, int oy, float scale, float b) {
-        char cu = Character.toUpperCase(c);
-        int idx = CHARSET.indexOf(cu);
-        if (idx < 0 || idx >= FONT.length) return;
-        for (float[] s : FONT[idx]) {
-            vl(ox+(int)(s[0]*scale), oy+(int)(s[1]*scale),
-               ox+(int)(s[2]*scale), oy+(int)(s[3]*scale), b);
-        }
+        FixedTrig.ellipse(M, cx, cy, r, r, segs, b);   // tessellation cached per (r, segs)
     }
 
+    // ── Vector font (shared, see VectorFont) ─────────────────
     private void vtext(String str, int ox, int oy, float scale, float b) {
-        int x = ox;
-        for (char c : str.toCharArray()) {
-            if (c == '\n') { oy -= (int)(scale*6); x = ox; continue; }
-            vchar(c, x, oy, scale, b);
-            x += (int)(scale * 5.5f);
-        }
+        VectorFont.text(M, str, ox, oy, scale, b);
     }
 
     private void border(float b) { rect(20,20,984,984,b); }
 
+    // ── Static scenery ────────────────────────────────────────
+    // Borders, titles and other fixed geometry are recorded once per demo
+    // into a retained layer and only attached on later frames (see
+    // VectorLayer), so each frame emits just the moving parts.
+    private final VectorLayer[] scenery = new VectorLayer[Type.values().length];
+
+    private VectorLayer scenery() {
+        int i = current.ordinal();
+        if (scenery[i] == null) scenery[i] = new VectorLayer();
+        return scenery[i];
+    }
+
     // ── LINES ─────────────────────────────────────────────────
     private void demoLines() {
         int cx=512,cy=512,r=450;
+        double angle=drawAngle();
+        int ang1=FixedTrig.angle(angle), ang2=FixedTrig.angle(angle*0.7), ang3=FixedTrig.angle(-angle*0.3);
         for (int i=0;i<20;i++){
-            double a1=(double)i/20*2*Math.PI+angle;
-            double a2=(double)(i+7)/20*2*Math.PI+angle*0.7;
-            vl(cx+(int)(Math.cos(a1)*r),cy+(int)(Math.sin(a1)*r),
-               cx+(int)(Math.cos(a2)*r/2),cy+(int)(Math.sin(a2)*r/2),0.85f);
+            int a1=FixedTrig.turn(i,20)+ang1;
+            int a2=FixedTrig.turn(i+7,20)+ang2;
+            vl(cx+FixedTrig.cosMul(a1,r),cy+FixedTrig.sinMul(a1,r),
+               cx+FixedTrig.cosMul(a2,r/2),cy+FixedTrig.sinMul(a2,r/2),0.85f);
         }
         for(int i=0;i<8;i++){
-            double a=(double)i/8*2*Math.PI-angle*0.3;
-            vl(cx,cy,cx+(int)(Math.cos(a)*r),cy+(int)(Math.sin(a)*r),0.3f);
+            int a=FixedTrig.turn(i,8)+ang3;
+            vl(cx,cy,cx+FixedTrig.cosMul(a,r),cy+FixedTrig.sinMul(a,r),0.3f);
+        }
+        VectorLayer s = scenery();
+        if (s.begin(M)) {
+            border(0.5f);
+            vtext("IMLAC PDS-1",280,80,16,0.7f);
+            vtext("ROTATING LINES",200,30,10,0.4f);
+            s.end(M);
         }
-        border(0.5f);
-        vtext("IMLAC PDS-1",280,80,16,0.7f);
-        vtext("ROTATING LINES",200,30,10,0.4f);
+        M.dlLayer(s);
     }
 
     // ── STAR ──────────────────────────────────────────────────
     private void demoStar() {
         int cx=512,cy=512;
+        double angle=drawAngle();
         drawStar(cx,cy,7,400,160,angle,1.0f);
         drawStar(cx,cy,5,120,50,-angle*2.5,0.7f);
-        border(0.4f);
-        vtext("STAR",380,60,20,0.6f);
+        VectorLayer s = scenery();
+        if (s.begin(M)) { border(0.4f); vtext("STAR",380,60,20,0.6f); s.end(M); }
+        M.dlLayer(s);
     }
 
     private void drawStar(int cx,int cy,int pts,int r1,int r2,double a0,float b){
-        int n=pts*2;
+        int n=pts*2, ang=FixedTrig.angle(a0);
         for(int i=0;i<n;i++){
-            double a1=(double)i/n*2*Math.PI+a0;
-            double a2=(double)(i+1)/n*2*Math.PI+a0;
+            int a1=FixedTrig.turn(i,n)+ang;
+            int a2=FixedTrig.turn(i+1,n)+ang;
             int ra=(i%2==0)?r1:r2, rb=((i+1)%2==0)?r1:r2;
-            vl(cx+(int)(Math.cos(a1)*ra),cy+(int)(Math.sin(a1)*ra),
-               cx+(int)(Math.cos(a2)*rb),cy+(int)(Math.sin(a2)*rb),b);
+            vl(cx+FixedTrig.cosMul(a1,ra),cy+FixedTrig.sinMul(a1,ra),
+               cx+FixedTrig.cosMul(a2,rb),cy+FixedTrig.sinMul(a2,rb),b);
         }
     }
 
     // ── LISSAJOUS ─────────────────────────────────────────────
     private void demoLissajous() {
-        double a=3,b=2;
+        int a=3,b=2,ph=FixedTrig.angle(drawAngle());
         int px=-1,py=-1;
         for(int i=0;i<=600;i++){
-            double tt=(double)i/600*2*Math.PI;
-            int x=512+(int)(460*Math.sin(a*tt+angle));
-            int y=512+(int)(460*Math.sin(b*tt));
+            int x=512+FixedTrig.sinMul(FixedTrig.turn(a*i,600)+ph,460);
+            int y=512+FixedTrig.sinMul(FixedTrig.turn(b*i,600),460);
             if(px>=0) vl(px,py,x,y,0.85f);
             px=x;py=y;
         }
-        border(0.4f);
-        vtext("LISSAJOUS",300,60,16,0.5f);
+        VectorLayer s = scenery();
+        if (s.begin(M)) { border(0.4f); vtext("LISSAJOUS",300,60,16,0.5f); s.end(M); }
+        M.dlLayer(s);
     }
 
     // ── TEXT ──────────────────────────────────────────────────
@@ -224,18 +256,26 @@ public class Demos {
         "LIGHT PEN","SPACEWAR 1974","ARPANET NODE","LOGO LANGUAGE"
     };
 
+    private void stepText() {
+        textScroll+=1.5;
+        if(textScroll>TEXT_LINES.length*145) textScroll=0;
+        textScrollPrev = textScroll == 0 ? 0 : textScroll - 1.5;
+    }
+
     private void demoText() {
+        double scroll=lerp(textScrollPrev,textScroll);
         for(int i=0;i<TEXT_LINES.length;i++){
-            int y=(int)(780-i*140+textScroll)%1100-100;
+            int y=(int)(780-i*140+scroll)%1100-100;
             if(y>-80&&y<1050) vtext(TEXT_LINES[i],80,y,20,0.9f);
         }
-        textScroll+=1.5;
-        if(textScroll>TEXT_LINES.length*145) textScroll=0;
-        border(0.3f);
+        VectorLayer s = scenery();
+        if (s.begin(M)) { border(0.3f); s.end(M); }
+        M.dlLayer(s);
     }
 
     // ── BOUNCE ────────────────────────────────────────────────
-    private void demoBounce() {
+    private void stepBounce() {
+        ballPX=ballX; ballPY=ballY;
         ballX+=ballVx; ballY+=ballVy;
         if(ballX<60||ballX>964){ballVx*=-1;ballX=Math.max(60,Math.min(964,ballX));}
         if(ballY<60||ballY>964){ballVy*=-1;ballY=Math.max(60,Math.min(964,ballY));}
@@ -245,19 +285,34 @@ public class Demos {
             System.arraycopy(trailY,1,trailY,0,14);
             trailX[14]=ballX;trailY[14]=ballY;
         }
+    }
+
+    private void demoBounce() {
+        int x=(int)lerp(ballPX,ballX), y=(int)lerp(ballPY,ballY);
         for(int i=0;i<trailN-1;i++) vp((int)trailX[i],(int)trailY[i],(float)(i+1)/trailN*0.4f);
-        circle((int)ballX,(int)ballY,35,16,1.0f);
-        vl((int)ballX-50,(int)ballY,(int)ballX+50,(int)ballY,0.25f);
-        vl((int)ballX,(int)ballY-50,(int)ballX,(int)ballY+50,0.25f);
-        circle(60,60,20,8,0.4f); circle(964,60,20,8,0.4f);
-        circle(60,964,20,8,0.4f); circle(964,964,20,8,0.4f);
-        rect(20,20,984,984,0.6f);
-        vtext("BOUNCE",350,40,14,0.6f);
+        circle(x,y,35,16,1.0f);
+        vl(x-50,y,x+50,y,0.25f);
+        vl(x,y-50,x,y+50,0.25f);
+        VectorLayer s = scenery();
+        if (s.begin(M)) {
+            circle(60,60,20,8,0.4f); circle(964,60,20,8,0.4f);
+            circle(60,964,20,8,0.4f); circle(964,964,20,8,0.4f);
+            rect(20,20,984,984,0.6f);
+            vtext("BOUNCE",350,40,14,0.6f);
+            s.end(M);
+        }
+        M.dlLayer(s);
     }
 
     // ── MAZE ──────────────────────────────────────────────────
     private void demoMaze() {
-        if(!mazeReady) initMaze();
+        VectorLayer s = scenery();
+        if(!mazeReady){ initMaze(); s.invalidate(); }
+        if(s.begin(M)){ drawMazeWalls(); s.end(M); }   // the whole demo is static
+        M.dlLayer(s);
+    }
+
+    private void drawMazeWalls() {
         int cw=(1024-60)/MW, ch=(1024-60)/MH, ox=30, oy=30;
         for(int y=0;y<MH;y++) for(int x=0;x<MW;x++){
             int cell=mazeGrid[y][x];
@@ -284,8 +339,8 @@ public class Demos {
 
     private void carve(int x,int y,boolean[][] vis){
         vis[y][x]=true;
-        Integer[] dirs={0,1,2,3};
-        java.util.Arrays.sort(dirs,(a,b)->(int)(Math.random()*3)-1);
+        int[] dirs={0,1,2,3};
+        for(int i=3;i>0;i--){int j=rng.nextInt(i+1);int t=dirs[i];dirs[i]=dirs[j];dirs[j]=t;}
         for(int d:dirs){
             int nx=x+CDX[d],ny=y+CDY[d];
             if(nx<0||nx>=MW||ny<0||ny>=MH||vis[ny][nx]) continue;
@@ -296,8 +351,9 @@ public class Demos {
     }
 
     // ── SPACEWAR ──────────────────────────────────────────────
-    private void demoSpacewar() {
+    private void stepSpacewar() {
         if(!swInit){for(int i=0;i<4;i++) blife[i]=0;swInit=true;}
+        sw1px=sw1x; sw1py=sw1y; sw2px=sw2x; sw2py=sw2y;
         sw1a+=0.025; sw2a+=0.025;
         // Gravity
         double dx1=512-sw1x,dy1=512-sw1y,d1=Math.sqrt(dx1*dx1+dy1*dy1);
@@ -314,15 +370,27 @@ public class Demos {
         for(int i=0;i<4;i++){
             if(blife[i]<=0) continue; blife[i]--;
             bx[i]+=bvx[i]; by[i]+=bvy[i];
-            vp((int)bx[i],(int)by[i],1.0f);
         }
-        // Central star
-        circle(512,512,25,12,0.6f); circle(512,512,8,8,1.0f);
+    }
+
+    private void demoSpacewar() {
+        float k=1f-alpha;
+        for(int i=0;i<4;i++){
+            if(blife[i]<=0) continue;
+            vp((int)(bx[i]-bvx[i]*k),(int)(by[i]-bvy[i]*k),1.0f);
+        }
+        // Central star, title and frame
+        VectorLayer s = scenery();
+        if (s.begin(M)) {
+            circle(512,512,25,12,0.6f); circle(512,512,8,8,1.0f);
+            vtext("SPACEWAR",310,960,14,0.5f);
+            rect(20,20,984,984,0.3f);
+            s.end(M);
+        }
+        M.dlLayer(s);
         // Ships
-        drawShip((int)sw1x,(int)sw1y,sw1a,1.0f);
-        drawShip((int)sw2x,(int)sw2y,sw2a+Math.PI,0.85f);
-        vtext("SPACEWAR",310,960,14,0.5f);
-        rect(20,20,984,984,0.3f);
+        drawShip((int)lerpWrap(sw1px,sw1x),(int)lerpWrap(sw1py,sw1y),sw1a-0.025*k,1.0f);
+        drawShip((int)lerpWrap(sw2px,sw2x),(int)lerpWrap(sw2py,sw2y),sw2a-0.025*k+Math.PI,0.85f);
     }
 
     private void fireSW(double x,double y,double a,double vx,double vy){
@@ -336,36 +404,117 @@ public class Demos {
         }
     }
 
+    private static final int SHIP_DA = FixedTrig.angle(2.5);   // wing angle from the nose
     private void drawShip(int cx,int cy,double a,float b){
-        double r1=30,r2=20,da=2.5;
-        int p1x=cx+(int)(Math.cos(a)*r1),   p1y=cy+(int)(Math.sin(a)*r1);
-        int p2x=cx+(int)(Math.cos(a+da)*r2), p2y=cy+(int)(Math.sin(a+da)*r2);
-        int p3x=cx+(int)(Math.cos(a-da)*r2), p3y=cy+(int)(Math.sin(a-da)*r2);
+        int r1=30,r2=20,da=SHIP_DA,ang=FixedTrig.angle(a);
+        int p1x=cx+FixedTrig.cosMul(ang,r1),    p1y=cy+FixedTrig.sinMul(ang,r1);
+        int p2x=cx+FixedTrig.cosMul(ang+da,r2), p2y=cy+FixedTrig.sinMul(ang+da,r2);
+        int p3x=cx+FixedTrig.cosMul(ang-da,r2), p3y=cy+FixedTrig.sinMul(ang-da,r2);
         vl(p1x,p1y,p2x,p2y,b); vl(p2x,p2y,p3x,p3y,b); vl(p3x,p3y,p1x,p1y,b);
     }
 
+    // ── SWARM (Spacewar stress mode) ──────────────────────────
+    // Hundreds of ships and thousands of torpedoes (see SpacewarSim).
+    // Keys: W / S double / halve the fleet, P toggles multi-core
+    // integration, R restarts with the same fleet size.
+    private final SpacewarSim swarm = new SpacewarSim(rng);
+    private int     swarmShips = SpacewarSim.DEFAULT_SHIPS;
+    private boolean swarmInit  = false;
+    private int     swarmKey   = 0;    // last key seen; held keys act once
+
+    public SpacewarSim getSwarm() { return swarm; }
+
+    private void stepSwarm() {
+        if (!swarmInit) { swarm.reset(swarmShips); swarmInit = true; }
+        int kbd = M.keyboard & 0x7F;
+        if (kbd != swarmKey) {
+            swarmKey = kbd;
+            switch (kbd) {
+                case 'W': case 'w': swarmShips = Math.min(SpacewarSim.MAX_SHIPS, swarmShips * 2); swarm.reset(swarmShips); break;
+                case 'S': case 's': swarmShips = Math.max(1, swarmShips / 2); swarm.reset(swarmShips); break;
+                case 'P': case 'p': swarm.setThreads(swarm.getThreads() > 1 ? 1 : Runtime.getRuntime().availableProcessors()); break;
+                case 'R': case 'r': swarm.reset(swarmShips); break;
+            }
+        }
+        swarm.step();
+    }
+
+    private void demoSwarm() {
+        if (!swarmInit) { swarm.reset(swarmShips); swarmInit = true; }
+        VectorLayer s = scenery();
+        if (s.begin(M)) {
+            circle(SpacewarSim.STAR_X, SpacewarSim.STAR_Y, SpacewarSim.STAR_R, 12, 0.6f);
+            circle(SpacewarSim.STAR_X, SpacewarSim.STAR_Y, 8, 8, 1.0f);
+            vtext("SWARM", 20, 990, 10, 0.5f);
+            vtext("W/S=SHIPS  P=CORES  R=RESTART", 560, 990, 8, 0.35f);
+            s.end(M);
+        }
+        M.dlLayer(s);
+
+        SpacewarSim w = swarm;
+        float a = alpha;
+        for (int i = 0; i < w.nTorps; i++)
+            vp((int) lerpWrapF(w.tpx[i], w.tx[i], a), (int) lerpWrapF(w.tpy[i], w.ty[i], a), 0.9f);
+        for (int i = 0; i < w.nShips; i++)
+            drawSwarmShip((int) lerpWrapF(w.spx[i], w.sx[i], a), (int) lerpWrapF(w.spy[i], w.sy[i], a),
+                          w.sAng[i] - (int) (w.sSpin[i] * (1f - a)), 0.75f);
+
+        int x = VectorFont.text(M, "SHIPS ", 20, 20, 9, 0.6f);
+        x = VectorFont.number(M, w.nShips, 1, x, 20, 9, 0.6f);
+        x = VectorFont.text(M, "  TORPS ", x, 20, 9, 0.6f);
+        x = VectorFont.number(M, w.nTorps, 1, x, 20, 9, 0.6f);
+        x = VectorFont.text(M, "  KILLS ", x, 20, 9, 0.6f);
+        x = VectorFont.number(M, w.kills, 1, x, 20, 9, 0.6f);
+        x = VectorFont.text(M, "  CORES ", x, 20, 9, 0.6f);
+        VectorFont.number(M, w.getThreads(), 1, x, 20, 9, 0.6f);
+    }
+
+    private static float lerpWrapF(float prev, float cur, float a) {
+        return Math.abs(cur - prev) > 512 ? cur : prev + (cur - prev) * a;
+    }
+
+    private void drawSwarmShip(int cx, int cy, int ang, float b) {
+        int da = SHIP_DA;
+        int p1x=cx+FixedTrig.cosMul(ang,12),    p1y=cy+FixedTrig.sinMul(ang,12);
+        int p2x=cx+FixedTrig.cosMul(ang+da,8),  p2y=cy+FixedTrig.sinMul(ang+da,8);
+        int p3x=cx+FixedTrig.cosMul(ang-da,8),  p3y=cy+FixedTrig.sinMul(ang-da,8);
+        vl(p1x,p1y,p2x,p2y,b); vl(p2x,p2y,p3x,p3y,b); vl(p3x,p3y,p1x,p1y,b);
+    }
+
+    // ── PONG ──────────────────────────────────────────────────
+    private PongGame pongGame = null;
+
+    // The program is rebuilt on every switch to PONG (syncSelection() stops
+    // the old game on any setDemo()), so whatever was loaded into
+    // memory meanwhile cannot leave it running a corrupted program.
+    private PongGame pong() {
+        if (pongGame == null) pongGame = new PongGame(M);
+        if (!pongGame.isInitialized()) pongGame.init();
+        return pongGame;
+    }
+
     // ── SCOPE ─────────────────────────────────────────────────
+    private static final int[][] SCOPE_FREQ = {{1,1},{2,3},{3,4},{5,4}};
+    private static final float[] SCOPE_BR   = {0.9f,0.7f,0.55f,0.4f};
     private void demoScope() {
-        double[][] freqs={{1,1},{2,3},{3,4},{5,4}};
-        float[] brs={0.9f,0.7f,0.55f,0.4f};
+        double angle=drawAngle();
         for(int f=0;f<4;f++){
-            double fa=freqs[f][0],fb=freqs[f][1],ph=angle*(f+1)*0.3;
+            int fa=SCOPE_FREQ[f][0],fb=SCOPE_FREQ[f][1],ph=FixedTrig.angle(angle*(f+1)*0.3);
             int px=-1,py=-1;
             for(int i=0;i<=400;i++){
-                double tt=(double)i/400*2*Math.PI;
-                int x=512+(int)(440*Math.sin(fa*tt+ph));
-                int y=512+(int)(440*Math.sin(fb*tt));
-                if(px>=0) vl(px,py,x,y,brs[f]);
+                int x=512+FixedTrig.sinMul(FixedTrig.turn(fa*i,400)+ph,440);
+                int y=512+FixedTrig.sinMul(FixedTrig.turn(fb*i,400),440);
+                if(px>=0) vl(px,py,x,y,SCOPE_BR[f]);
                 px=x;py=y;
             }
         }
-        border(0.4f);
-        vtext("SCOPE",380,60,14,0.5f);
+        VectorLayer s = scenery();
+        if (s.begin(M)) { border(0.4f); vtext("SCOPE",380,60,14,0.5f); s.end(M); }
+        M.dlLayer(s);
     }
     // ── MAZE WAR ──────────────────────────────────────────────
     private void demoMazeWar() {
         if (mazeWarGame == null) mazeWarGame = new MazeWarGame(M);
-        mazeWarGame.tick();
         mazeWarGame.draw();
     }
 
@@ -378,9 +527,17 @@ public class Demos {
     private static final int SN_OY    = 80;   // grid origin Y
     private static final int SN_MAX   = SN_COLS * SN_ROWS;
 
-    // Snake state
-    private int[]  snX    = new int[SN_MAX];  // body X coords (grid)
-    private int[]  snY    = new int[SN_MAX];  // body Y coords (grid)
+    // Snake state. The body is a ring of cell indices (y*SN_COLS+x): the
+    // head moves forward one slot per step and the tail is simply dropped,
+    // so nothing is shifted. snOcc marks body cells for O(1) collision;
+    // snFree lists every other cell (snFreeAt = its slot, -1 if on the
+    // body), so food is one random pick from it.
+    private final int[]  snBody   = new int[SN_MAX];
+    private int          snHead   = 0;                    // ring slot of the head
+    private final long[] snOcc    = new long[(SN_MAX + 63) >> 6];
+    private final int[]  snFree   = new int[SN_MAX];
+    private final int[]  snFreeAt = new int[SN_MAX];
+    private int          snFreeN  = 0;
     private int    snLen  = 4;
     private int    snDir  = 1;   // 0=up 1=right 2=down 3=left
     private int    snNDir = 1;   // next direction (buffered)
@@ -389,7 +546,7 @@ public class Demos {
     private boolean snDead = false;
     private boolean snInit = false;
     private int    snTick  = 0;
-    private static final int SN_SPEED = 8; // frames per move
+    private static final int SN_SPEED = 8; // simulation ticks per move
 
     private void snakeInit() {
         snLen = 4;
@@ -397,23 +554,46 @@ public class Demos {
         snDead = false;
         snScore = 0;
         snTick = 0;
-        for (int i = 0; i < snLen; i++) { snX[i] = 8 - i; snY[i] = 11; }
+        java.util.Arrays.fill(snOcc, 0L);
+        for (int c = 0; c < SN_MAX; c++) { snFree[c] = c; snFreeAt[c] = c; }
+        snFreeN = SN_MAX;
+        snHead = snLen - 1;
+        for (int i = 0; i < snLen; i++) {               // tail at slot 0, head at snLen-1
+            int c = 11 * SN_COLS + (8 - i);
+            snBody[snHead - i] = c;
+            snTake(c);
+        }
         snPlaceFood();
         snInit = true;
     }
 
+    /** Cell c joins the body. */
+    private void snTake(int c) {
+        snOcc[c >> 6] |= 1L << c;
+        int k = snFreeAt[c], last = snFree[--snFreeN];   // swap-remove from the free list
+        snFree[k] = last; snFreeAt[last] = k;
+        snFreeAt[c] = -1;
+    }
+
+    /** Cell c leaves the body. */
+    private void snRelease(int c) {
+        snOcc[c >> 6] &= ~(1L << c);
+        snFreeAt[c] = snFreeN;
+        snFree[snFreeN++] = c;
+    }
+
+    private boolean snOccupied(int c) { return (snOcc[c >> 6] & (1L << c)) != 0; }
+
+    /** Body cell i, 0 = head. */
+    private int snCell(int i) { return snBody[(snHead - i + SN_MAX) % SN_MAX]; }
+
     private void snPlaceFood() {
-        // Find empty cell
-        for (int attempt = 0; attempt < 200; attempt++) {
-            int fx = (frame * 7 + attempt * 13) % SN_COLS;
-            int fy = (frame * 11 + attempt * 17) % SN_ROWS;
-            boolean ok = true;
-            for (int i = 0; i < snLen; i++) if (snX[i]==fx && snY[i]==fy) { ok=false; break; }
-            if (ok) { snFX = fx; snFY = fy; return; }
-        }
+        if (snFreeN == 0) { snFX = snFY = -1; return; }    // board full
+        int c = snFree[rng.nextInt(snFreeN)];
+        snFX = c % SN_COLS; snFY = c / SN_COLS;
     }
 
-    private void demoSnake() {
+    private void stepSnake() {
         if (!snInit) snakeInit();
 
         // Read input — check both "just pressed" (low byte) and "held" (bit15)
@@ -438,7 +618,8 @@ public class Demos {
         // Game tick: advance snake every SN_SPEED frames
         if (!snDead && (snTick % SN_SPEED) == 0) {
             snDir = snNDir;
-            int nx = snX[0], ny = snY[0];
+            int head = snCell(0);
+            int nx = head % SN_COLS, ny = head / SN_COLS;
             switch (snDir) {
                 case 0: ny++; break;
                 case 1: nx++; break;
@@ -449,35 +630,39 @@ public class Demos {
             if (nx < 0 || nx >= SN_COLS || ny < 0 || ny >= SN_ROWS) {
                 snDead = true;
             } else {
-                // Self collision
-                for (int i = 0; i < snLen - 1; i++) {
-                    if (snX[i] == nx && snY[i] == ny) { snDead = true; break; }
-                }
-            }
-            if (!snDead) {
-                // Ate food?
-                boolean ate = (nx == snFX && ny == snFY);
-                // Shift body
-                int newLen = ate ? snLen + 1 : snLen;
-                if (newLen > SN_MAX) newLen = SN_MAX;
-                for (int i = newLen - 1; i > 0; i--) {
-                    snX[i] = snX[i-1]; snY[i] = snY[i-1];
+                int c = ny * SN_COLS + nx, tail = snCell(snLen - 1);
+                boolean ate  = (nx == snFX && ny == snFY);
+                boolean grow = ate && snLen < SN_MAX;
+                // Self collision — the tail cell is free unless the snake grows
+                if (snOccupied(c) && (grow || c != tail)) snDead = true;
+                if (!snDead) {
+                    if (!grow) snRelease(tail); else snLen++;
+                    snHead = (snHead + 1) % SN_MAX;
+                    snBody[snHead] = c;
+                    snTake(c);
+                    if (ate) { snScore++; snPlaceFood(); }
                 }
-                snX[0] = nx; snY[0] = ny;
-                snLen = newLen;
-                if (ate) { snScore++; snPlaceFood(); }
             }
         }
         snTick++;
+    }
 
-        // ── Draw ──────────────────────────────────────────────
+    private void demoSnake() {
+        if (!snInit) snakeInit();
 
-        // Border
-        rect(SN_OX - 4, SN_OY - 4,
-             SN_COLS * SN_CELL + 8, SN_ROWS * SN_CELL + 8, 0.5f);
+        // Playfield frame and fixed labels
+        VectorLayer s = scenery();
+        if (s.begin(M)) {
+            rect(SN_OX - 4, SN_OY - 4,
+                 SN_COLS * SN_CELL + 8, SN_ROWS * SN_CELL + 8, 0.5f);
+            vtext("SNAKE", 380, 20, 14, 0.6f);
+            vtext("WASD=MOVE  R=RESTART", 600, 20, 9, 0.35f);
+            s.end(M);
+        }
+        M.dlLayer(s);
 
         // Food — blinking star
-        if (!snDead && (snTick / 4) % 2 == 0) {
+        if (!snDead && snFX >= 0 && (snTick / 4) % 2 == 0) {
             int fx = SN_OX + snFX * SN_CELL + SN_CELL/2;
             int fy = SN_OY + snFY * SN_CELL + SN_CELL/2;
             int r  = 10;
@@ -489,8 +674,9 @@ public class Demos {
 
         // Snake body — draw each segment as a square
         for (int i = snLen - 1; i >= 0; i--) {
-            int sx = SN_OX + snX[i] * SN_CELL + 3;
-            int sy = SN_OY + snY[i] * SN_CELL + 3;
+            int c  = snCell(i);
+            int sx = SN_OX + (c % SN_COLS) * SN_CELL + 3;
+            int sy = SN_OY + (c / SN_COLS) * SN_CELL + 3;
             int sz = SN_CELL - 6;
             float b = (i == 0) ? 1.0f : (0.9f - i * 0.015f);
             if (b < 0.25f) b = 0.25f;
@@ -508,9 +694,7 @@ public class Demos {
         }
 
         // HUD: score
-        vtext("SNAKE", 380, 20, 14, 0.6f);
-        vtext("SCORE:" + snScore, 40, 20, 12, 0.8f);
-        vtext("WASD=MOVE  R=RESTART", 600, 20, 9, 0.35f);
+        VectorFont.number(M, snScore, 1, VectorFont.text(M, "SCORE:", 40, 20, 12, 0.8f), 20, 12, 0.8f);
 
         if (snDead) {
             vtext("GAME OVER", 300, 520, 20, 1.0f);
@@ -0,0 +1,129 @@
+package com.imlac.pds1;
+
+/**
+ * Snapshot of one complete display list, as published by EmuLoop
+ * and consumed by CrtView. Same layout as Machine's display list.
+ * Pre-allocated at MAX_VEC capacity and reused — zero GC.
+ *
+ * Retained layers are carried by reference (immutable snapshots), not
+ * copied into the vector arrays; consumers that need one flat list use
+ * flattenInto().
+ */
+public class DisplayFrame {
+
+    public final int[]     x1 = new int[Machine.MAX_VEC];
+    public final int[]     y1 = new int[Machine.MAX_VEC];
+    public final int[]     x2 = new int[Machine.MAX_VEC];
+    public final int[]     y2 = new int[Machine.MAX_VEC];
+    public final boolean[] pt = new boolean[Machine.MAX_VEC];
+    public final int[]     br = new int[Machine.MAX_VEC];   // 0-255
+    public int  n   = 0;
+    public int  dropped = 0;   // duplicates and culled vectors removed by copyFrom
+    public long seq = 0;    // tick number that produced this frame
+    public long hash = 0;   // content hash, used to skip unchanged frames
+
+    public final VectorLayer.Snapshot[] layers = new VectorLayer.Snapshot[Machine.MAX_LAYERS];
+    public int nLayers = 0;
+    public int layerVectors = 0;   // total vectors in layers[0..nLayers)
+
+    // Open-addressing set of packed endpoint pairs -> vector index, used to
+    // merge exact duplicates. Slots are valid only when their stamp equals
+    // the current generation, so the table is never cleared.
+    private static final int SET_BITS = 16;                   // 2 x MAX_VEC slots
+    private static final int SET_MASK = (1 << SET_BITS) - 1;
+    private final long[] setKey   = new long[1 << SET_BITS];
+    private final int[]  setIdx   = new int[1 << SET_BITS];
+    private final int[]  setStamp = new int[1 << SET_BITS];
+    private int gen = 0;
+
+    /**
+     * Copy the machine's current display list into this frame, dropping
+     * vectors entirely outside 0..1023 and exact duplicates (either
+     * direction). Duplicates keep the brighter intensity. Zero-length lines
+     * (VectorFont's dot strokes in '.', ':', '!') become points.
+     */
+    public void copyFrom(Machine m, long tick) {
+        int nv = Math.min(m.nvec, Machine.MAX_VEC);
+        if (++gen == 0) { java.util.Arrays.fill(setStamp, 0); gen = 1; }
+        int k = 0;
+        for (int i = 0; i < nv; i++) {
+            int ax = m.vx1[i], ay = m.vy1[i], bx, by;
+            boolean p = m.vpt[i];
+            if (p) { bx = ax; by = ay; }
+            else {
+                bx = m.vx2[i]; by = m.vy2[i];
+                if (ax == bx && ay == by) p = true;
+            }
+            if ((outcode(ax, ay) & outcode(bx, by)) != 0) continue;
+
+            int pa = (ax & 0xFFFF) | ay << 16, pb = (bx & 0xFFFF) | by << 16;
+            long key = pa < pb ? (long) pa << 32 | (pb & 0xFFFFFFFFL)
+                               : (long) pb << 32 | (pa & 0xFFFFFFFFL);
+            int slot = (int)((key * 0x9E3779B97F4A7C15L) >>> (64 - SET_BITS));
+            while (setStamp[slot] == gen && setKey[slot] != key) slot = (slot + 1) & SET_MASK;
+
+            int b = m.vbr[i];
+            if (setStamp[slot] == gen) {
+                int j = setIdx[slot];
+                if (b > br[j]) br[j] = b;
+                continue;
+            }
+            setStamp[slot] = gen; setKey[slot] = key; setIdx[slot] = k;
+            x1[k] = ax; y1[k] = ay; x2[k] = m.vx2[i]; y2[k] = m.vy2[i];
+            pt[k] = p; br[k] = b;
+            k++;
+        }
+        n   = k;
+        dropped = nv - k;
+        seq = tick;
+
+        nLayers = m.nlayers;
+        layerVectors = 0;
+        for (int i = 0; i < nLayers; i++) {
+            layers[i] = m.layers[i];
+            layerVectors += layers[i].n;
+        }
+        hash = contentHash();
+    }
+
+    /** Write layers (first) and vectors into dst as one flat list without layers. */
+    public void flattenInto(DisplayFrame dst) {
+        int k = 0;
+        for (int l = 0; l < nLayers; l++) {
+            VectorLayer.Snapshot s = layers[l];
+            int c = Math.min(s.n, Machine.MAX_VEC - k);
+            System.arraycopy(s.x1, 0, dst.x1, k, c); System.arraycopy(s.y1, 0, dst.y1, k, c);
+            System.arraycopy(s.x2, 0, dst.x2, k, c); System.arraycopy(s.y2, 0, dst.y2, k, c);
+            System.arraycopy(s.pt, 0, dst.pt, k, c); System.arraycopy(s.br, 0, dst.br, k, c);
+            k += c;
+        }
+        int c = Math.min(n, Machine.MAX_VEC - k);
+        System.arraycopy(x1, 0, dst.x1, k, c); System.arraycopy(y1, 0, dst.y1, k, c);
+        System.arraycopy(x2, 0, dst.x2, k, c); System.arraycopy(y2, 0, dst.y2, k, c);
+        System.arraycopy(pt, 0, dst.pt, k, c); System.arraycopy(br, 0, dst.br, k, c);
+        dst.n = k + c;
+        dst.nLayers = 0;
+        dst.layerVectors = 0;
+        dst.dropped = dropped;
+        dst.seq  = seq;
+        dst.hash = hash;
+    }
+
+    /** Cohen-Sutherland region bits against the 1024x1024 screen. */
+    private static int outcode(int x, int y) {
+        return (x < 0 ? 1 : 0) | (x > 1023 ? 2 : 0) | (y < 0 ? 4 : 0) | (y > 1023 ? 8 : 0);
+    }
+
+    /** 64-bit FNV-1a style hash over all vectors (cheap, allocation-free). */
+    private long contentHash() {
+        long h = 0xcbf29ce484222325L ^ n;
+        for (int l = 0; l < nLayers; l++)   // a layer is identified by its id and version
+            h = (h ^ ((long) layers[l].id << 32 | layers[l].version)) * 0x100000001b3L;
+        for (int i = 0; i < n; i++) {
+            h = (h ^ (x1[i] | ((long) y1[i] << 16) | ((long) br[i] << 32) | (pt[i] ? 1L << 48 : 0L)))
+                * 0x100000001b3L;
+            h = (h ^ (x2[i] | ((long) y2[i] << 16))) * 0x100000001b3L;
+        }
+        return h;
+    }
+}
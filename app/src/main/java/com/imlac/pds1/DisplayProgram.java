@@ -0,0 +1,224 @@
+package com.imlac.pds1;
+
+import java.util.Arrays;
+
+/**
+ * Builder for display programs that a game patches every frame.
+ *
+ * The program is written into Machine.mem as a main list of DJMS calls,
+ * one per drawn segment, followed by DHLT; every segment and subroutine
+ * ends in DRJM. Running the DP from entry() therefore draws the whole
+ * picture exactly as the hardware would.
+ *
+ * Words that change at run time are declared as slots: position
+ * (DLXA / DLYA) and subroutine target (DJMS). set()
+ * re-encodes the word and, if it actually changed, records it in a
+ * dirty-word bitmap. draw() uses that bitmap to keep the output of
+ * untouched segments: a retained segment is recorded once into its own
+ * VectorLayer and only run again when one of its words — or any
+ * subroutine word — is dirty. Live segments (things that move every
+ * tick) are run straight into the display list each frame.
+ *
+ * Each segment starts with DEIM 7 and should load its own X and Y, so it
+ * draws the same whether it is run alone or from the main list.
+ * Emulation thread only.
+ */
+public final class DisplayProgram {
+
+    // Slot kinds
+    private static final int POS_X = 0;   // DLXA x
+    private static final int POS_Y = 1;   // DLYA y
+    private static final int CALL  = 2;   // DJMS target
+
+    private static final int MAX_STEPS = 8192;   // per segment run, guards against DP loops
+
+    private final Machine M;
+    private int p;                       // next free word while building
+    private int entry = -1;
+
+    // ── Slots ─────────────────────────────────────────────────
+    private int[]    slotAddr = new int[16];
+    private int[]    slotKind = new int[16];
+    private int      nSlots   = 0;
+
+    // ── Blocks: drawn segments and subroutines ────────────────
+    private int[]         blkStart  = new int[8];
+    private int[]         blkEnd    = new int[8];
+    private boolean[]     blkSub    = new boolean[8];
+    private VectorLayer[] blkLayer  = new VectorLayer[8];   // null = live segment or subroutine
+    private int           nBlocks   = 0;
+    private int           nRetained = 0;
+
+    // ── Dirty words ───────────────────────────────────────────
+    private final long[] dirty = new long[Machine.MEM_SIZE / 64];
+    private int nDirty = 0;
+
+    /** Start building a program at address base. */
+    public DisplayProgram(Machine m, int base) {
+        this.M = m;
+        this.p = base & Machine.ADDR_MASK;
+    }
+
+    // ── Instruction encoders ──────────────────────────────────
+    //   DLXA x = 0x1000 | x      DLYA y = 0x2000 | y      (0..1023)
+    //   DLVH   = 0x4xxx: [11]=sign dx, [10:6]=|dx|, [5]=sign dy,
+    //            [4:0]=|dy|, deltas × 8
+    //   DJMS a = 0x6000 | a      DPTS = 0x7800      DHLT = 0x8000
+    //   DEIM n = 0x9000 | n      DRJM = 0xB000
+
+    public static int dlxa(int x) { return 0x1000 | clamp(x, 0, 1023); }
+    public static int dlya(int y) { return 0x2000 | clamp(y, 0, 1023); }
+    public static int deim(int level) { return 0x9000 | (level & 7); }
+    public static int djms(int addr)  { return 0x6000 | (addr & Machine.ADDR_MASK); }
+    public static final int DPTS = 0x7800, DHLT = 0x8000, DRJM = 0xB000;
+
+    /** DLVH: signed 5-bit dx, dy in steps of 8 units (±248). */
+    public static int dlvh(int dx, int dy) {
+        int w = 0x4000;
+        if (dx < 0) { w |= 0x0800; dx = -dx; }
+        if (dy < 0) { w |= 0x0020; dy = -dy; }
+        return w | (Math.min(dx, 0x1F) << 6) | Math.min(dy, 0x1F);
+    }
+
+    private static int clamp(int v, int lo, int hi) { return v < lo ? lo : v > hi ? hi : v; }
+
+    // ── Building ──────────────────────────────────────────────
+
+    /** Append one raw instruction word; returns its address. */
+    public int emit(int word) {
+        int a = p;
+        write(a, word & Machine.WORD_MASK);
+        p = (p + 1) & Machine.ADDR_MASK;
+        return a;
+    }
+
+    public void point()                  { emit(DPTS); }
+    public void moveTo(int x, int y)     { emit(dlxa(x)); emit(dlya(y)); }
+    public void longVec(int dx, int dy)  { emit(dlvh(dx, dy)); }
+
+    /**
+     * Start a drawn segment. A retained segment is kept as a VectorLayer
+     * between frames; when Machine.MAX_LAYERS are already taken it falls
+     * back to live.
+     */
+    public void segment(boolean retained) {
+        int b = openBlock(false);
+        if (retained && nRetained < Machine.MAX_LAYERS) { blkLayer[b] = new VectorLayer(); nRetained++; }
+        emit(deim(7));
+    }
+
+    /** Start a subroutine, only reached through CALL slots or djms(); returns its address. */
+    public int subroutine() {
+        openBlock(true);
+        return p;
+    }
+
+    /** Emit a patchable DLXA; returns the slot. */
+    public int posX(int x) { return slot(POS_X, x); }
+
+    /** Emit a patchable DLYA; returns the slot. */
+    public int posY(int y) { return slot(POS_Y, y); }
+
+    /** Emit a patchable DJMS to target; returns the slot. */
+    public int call(int target) { return slot(CALL, target); }
+
+    /**
+     * Close the last block and write the main list. Returns the entry
+     * address (a valid Machine.dp_start). The freshly built words do not
+     * count as dirty; every retained segment records on its first draw().
+     */
+    public int finish() {
+        closeBlock();
+        entry = p;
+        for (int b = 0; b < nBlocks; b++)
+            if (!blkSub[b]) emit(djms(blkStart[b]));
+        emit(DHLT);
+        Arrays.fill(dirty, 0);
+        nDirty = 0;
+        return entry;
+    }
+
+    public int entry() { return entry; }
+
+    private int openBlock(boolean sub) {
+        closeBlock();
+        if (nBlocks == blkStart.length) {
+            int n = nBlocks * 2;
+            blkStart = Arrays.copyOf(blkStart, n); blkEnd   = Arrays.copyOf(blkEnd, n);
+            blkSub   = Arrays.copyOf(blkSub, n);   blkLayer = Arrays.copyOf(blkLayer, n);
+        }
+        int b = nBlocks++;
+        blkStart[b] = p; blkEnd[b] = -1; blkSub[b] = sub;
+        return b;
+    }
+
+    private void closeBlock() {
+        if (nBlocks == 0 || blkEnd[nBlocks - 1] >= 0) return;
+        emit(DRJM);
+        blkEnd[nBlocks - 1] = p;
+    }
+
+    private int slot(int kind, int v) {
+        if (nSlots == slotAddr.length) {
+            int n = nSlots * 2;
+            slotAddr = Arrays.copyOf(slotAddr, n); slotKind = Arrays.copyOf(slotKind, n);
+        }
+        int s = nSlots++;
+        slotKind[s] = kind;
+        slotAddr[s] = emit(encode(kind, v));
+        return s;
+    }
+
+    private static int encode(int kind, int v) {
+        switch (kind) {
+            case POS_X: return dlxa(v);
+            case POS_Y: return dlya(v);
+            default:    return djms(v);
+        }
+    }
+
+    // ── Patching ──────────────────────────────────────────────
+
+    /** Patch a slot; the word is rewritten (and marked dirty) only if it changes. */
+    public void set(int slot, int value) {
+        write(slotAddr[slot], encode(slotKind[slot], value));
+    }
+
+    private void write(int addr, int word) {
+        if (M.mem[addr] == word) return;
+        M.mem[addr] = word;
+        long bit = 1L << (addr & 63);
+        if ((dirty[addr >> 6] & bit) == 0) { dirty[addr >> 6] |= bit; nDirty++; }
+    }
+
+    private boolean anyDirty(int lo, int hi) {
+        if (nDirty == 0) return false;
+        for (int a = lo; a < hi; a++)
+            if ((dirty[a >> 6] & 1L << (a & 63)) != 0) return true;
+        return false;
+    }
+
+    // ── Drawing ───────────────────────────────────────────────
+
+    /**
+     * Fill this frame's display list: live segments run every time, retained
+     * segments only when their range (or a subroutine) has dirty words —
+     * otherwise their layer from an earlier frame is attached as it is.
+     * Clears the dirty set.
+     */
+    public void draw() {
+        boolean subsDirty = false;
+        for (int b = 0; b < nBlocks && !subsDirty; b++)
+            subsDirty = blkSub[b] && anyDirty(blkStart[b], blkEnd[b]);
+
+        for (int b = 0; b < nBlocks; b++) {
+            if (blkSub[b]) continue;
+            VectorLayer l = blkLayer[b];
+            if (l == null) { M.dpCall(blkStart[b], MAX_STEPS); continue; }
+            if (subsDirty || anyDirty(blkStart[b], blkEnd[b])) l.invalidate();
+            if (l.begin(M)) { M.dpCall(blkStart[b], MAX_STEPS); l.end(M); }
+            M.dlLayer(l);
+        }
+        if (nDirty != 0) { Arrays.fill(dirty, 0); nDirty = 0; }
+    }
+}
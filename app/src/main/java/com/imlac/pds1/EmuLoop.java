@@ -0,0 +1,169 @@
+package com.imlac.pds1;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Emulation thread: advances the current demo at a fixed simulation rate
+ * (Demos.SIM_HZ) and draws / publishes display lists at the frame rate.
+ *
+ * The two rates are decoupled with an accumulator: real time is added up
+ * and consumed in whole simulation ticks, so a slow device draws fewer
+ * frames but the games keep their speed, and a fast one draws more
+ * frames without speeding them up. With interpolation on, each frame is
+ * drawn at the fractional position between the last two ticks.
+ *
+ * Frames are handed over through a lock-free triple buffer:
+ *   back  — owned by this thread, being filled
+ *   mid   — last completed frame (plus a FRESH flag), swapped atomically
+ *   front — owned by the renderer, being drawn
+ * Neither side ever waits for the other: a slow GPU does not slow the
+ * simulation, and a slow simulation tick does not stall rendering.
+ *
+ * A frame whose content hash equals the last published one is dropped,
+ * so static screens publish nothing and the renderer can stay idle.
+ */
+public class EmuLoop {
+
+    private static final int FRESH = 4;
+    private static final int IDX   = 3;
+
+    private final Machine M;
+    private final Demos   D;
+
+    private final DisplayFrame[] frames = {
+        new DisplayFrame(), new DisplayFrame(), new DisplayFrame()
+    };
+    private int back  = 0;                                   // producer only
+    private int front = 1;                                   // consumer only
+    private final AtomicInteger mid = new AtomicInteger(2);
+
+    /** Called on the emulation thread whenever a changed frame is published. */
+    public interface FrameListener { void onFrame(); }
+
+    private volatile FrameListener listener;
+    private long    lastHash  = 0;
+    private boolean published = false;
+
+    // The running thread; run() exits as soon as it is no longer this one,
+    // so a thread being stopped can never carry on beside its successor.
+    private volatile Thread thread;
+    private volatile int     frameRate   = 30;
+    private volatile boolean interpolate = true;
+    private volatile long    ticks    = 0;   // frames drawn
+    private volatile long    simTicks = 0;   // simulation steps
+
+    private static final long SIM_PERIOD  = 1_000_000_000L / Demos.SIM_HZ;
+    private static final int  MAX_CATCHUP = 5;   // sim steps per frame before dropping time
+
+    private volatile PerfStats perf;
+
+    public EmuLoop(Machine m, Demos d) { M = m; D = d; }
+
+    public void setPerfStats(PerfStats p) { perf = p; }
+
+    private volatile LightPen pen;
+    /** Light pen fed by touch input; its hits are applied to the machine each tick. */
+    public void setLightPen(LightPen p) { pen = p; }
+
+    /** Display lists drawn per second; does not change game speed. */
+    public void setFrameRate(int hz) { frameRate = Math.max(1, Math.min(240, hz)); }
+    public int  getFrameRate()       { return frameRate; }
+    /** Draw moving objects between simulation ticks (only visible when frameRate > SIM_HZ). */
+    public void setInterpolate(boolean on) { interpolate = on; }
+    public long getTicks()           { return ticks; }
+    public long getSimTicks()        { return simTicks; }
+    public void setFrameListener(FrameListener l) { listener = l; }
+
+    public void start() {
+        stop();
+        published = false;
+        Thread t = new Thread(this::run, "imlac-emu");
+        t.setDaemon(true);
+        thread = t;
+        t.start();
+    }
+
+    /**
+     * Stop the loop and wait until its thread has exited, however long the
+     * current step takes. Afterwards the caller owns Machine exclusively.
+     */
+    public void stop() {
+        Thread t = thread;
+        if (t == null) return;
+        thread = null;
+        t.interrupt();
+        boolean interrupted = false;
+        while (t.isAlive()) {
+            try { t.join(); } catch (InterruptedException e) { interrupted = true; }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Renderer side: returns the most recent completed frame. The same
+     * object stays valid until the next call.
+     */
+    public DisplayFrame latest() {
+        if ((mid.get() & FRESH) != 0)
+            front = mid.getAndSet(front) & IDX;
+        return frames[front];
+    }
+
+    /** True if a frame newer than the one last returned by latest() is waiting. */
+    public boolean hasFresh() { return (mid.get() & FRESH) != 0; }
+
+    // ── Thread body ───────────────────────────────────────────
+
+    private void run() {
+        long next = System.nanoTime();
+        long prev = next, acc = SIM_PERIOD;   // first frame steps once
+        while (thread == Thread.currentThread()) {
+            long now = System.nanoTime(), t0 = now;
+            acc += now - prev;
+            prev = now;
+            int steps = 0;
+            while (acc >= SIM_PERIOD && steps < MAX_CATCHUP) {
+                D.step();
+                acc -= SIM_PERIOD;
+                steps++;
+            }
+            if (acc >= SIM_PERIOD) acc = 0;   // hopelessly behind — slow down instead of spiralling
+            simTicks += steps;
+            tick(interpolate ? (float) acc / SIM_PERIOD : 1f, t0);
+
+            long period = 1_000_000_000L / frameRate;
+            next += period;
+            now = System.nanoTime();
+            long wait = next - now;
+            if (wait > 0) {
+                try { Thread.sleep(wait / 1_000_000L, (int)(wait % 1_000_000L)); }
+                catch (InterruptedException e) { break; }
+            } else if (-wait > period * 4) {
+                next = now;   // fell far behind (debugger, GC) — don't spiral
+            }
+        }
+    }
+
+    /** Draw and publish one frame; t0 is when this frame's simulation steps began. */
+    private void tick(float alpha, long t0) {
+        PerfStats ps = perf;
+        M.dlClear();
+        D.draw(alpha);
+        if (ps != null) ps.record(PerfStats.DEMO, t0);
+
+        long t1 = System.nanoTime();
+        long t = ++ticks;
+        DisplayFrame f = frames[back];
+        f.copyFrom(M, t);
+        if (ps != null) { ps.record(PerfStats.PUBLISH, t1); ps.setVectors(f.n + f.layerVectors, f.dropped); }
+        LightPen lp = pen;
+        if (lp != null) lp.apply(M, f);   // seen by the program on the next tick
+        if (published && f.hash == lastHash) return;   // nothing changed
+
+        lastHash  = f.hash;
+        published = true;
+        back = mid.getAndSet(back | FRESH) & IDX;
+        FrameListener l = listener;
+        if (l != null) l.onFrame();
+    }
+}
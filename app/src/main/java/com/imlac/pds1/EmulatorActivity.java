@@ -26,12 +26,17 @@ public class EmulatorActivity extends Activity {
     private Demos      demos;
     private CrtView    crtView;
     private GameLoader gameLoader;
+    private EmuLoop    emuLoop;
+    private final PerfStats perfStats = new PerfStats();
+    private final LightPen  lightPen  = new LightPen();
 
     private Thread   mpThread;
     private volatile boolean mpRunning = false;
+    private boolean  resumed  = false;   // between onResume and onPause
+    private boolean  mpPaused = false;   // MP thread to restart in onResume
 
     private final Handler uiHandler = new Handler(Looper.getMainLooper());
-    private TextView tvPC, tvAC, tvIR, tvLink, tvDPX, tvDPY, tvStatus, tvFps;
+    private TextView tvPC, tvAC, tvIR, tvLink, tvDPX, tvDPY, tvStatus, tvFps, tvPerf;
     private SeekBar  sbFps;
     private int      targetFps = 30;
     private boolean  keyboardVisible = false;
@@ -61,8 +66,14 @@ public class EmulatorActivity extends Activity {
         demos      = new Demos(machine);
         gameLoader = new GameLoader(this);
 
+        emuLoop    = new EmuLoop(machine, demos);
+        demos.setPerfStats(perfStats);
+        emuLoop.setPerfStats(perfStats);
+        emuLoop.setLightPen(lightPen);
+
         crtView = findViewById(R.id.crt_view);
-        crtView.setMachine(machine, demos);
+        crtView.setEmuLoop(emuLoop);
+        crtView.setPerfStats(perfStats);
         crtView.setMaxFps(30);
 
         findViews();
@@ -73,20 +84,47 @@ public class EmulatorActivity extends Activity {
         wireToggleInput();
         wireMultiplayer();
         wireChat();
+        wirePerfOverlay();
         startRegUpdater();
 
+        // Light pen: every touch sample, including the batched historical
+        // ones, is queued and hit-tested against the frame on the emu thread
         crtView.setOnTouchListener((v, ev) -> {
-            int[] p = crtView.screenToPDS(ev.getX(), ev.getY());
-            machine.lpen_x = p[0]; machine.lpen_y = p[1];
-            machine.lpen_hit = (ev.getAction() != MotionEvent.ACTION_UP);
+            int act = ev.getActionMasked();
+            if (act == MotionEvent.ACTION_UP || act == MotionEvent.ACTION_CANCEL) {
+                lightPen.release();
+                return true;
+            }
+            for (int i = 0, n = ev.getHistorySize(); i < n; i++)
+                lightPen.offer(crtView.screenToPdsX(ev.getHistoricalX(i)),
+                               crtView.screenToPdsY(ev.getHistoricalY(i)));
+            lightPen.offer(crtView.screenToPdsX(ev.getX()), crtView.screenToPdsY(ev.getY()));
             return true;
         });
 
-        demos.setDemo(Demos.Type.STAR);
+        demos.setDemo(Demos.Type.STAR);   // EmuLoop starts in onResume
+    }
+
+    @Override protected void onResume() {
+        super.onResume();
+        hideSystemUI();
+        resumed = true;
+        crtView.onResume();
+        emuLoop.start();
+        if (mpPaused) { mpPaused = false; startMP(); }
+    }
+
+    /** Nothing runs in the background: stop emulation, the MP thread and the GL thread. */
+    @Override protected void onPause() {
+        super.onPause();
+        resumed = false;
+        emuLoop.stop();
+        mpPaused = mpRunning;
+        stopMP();
+        crtView.onPause();
     }
 
-    @Override protected void onResume()  { super.onResume(); hideSystemUI(); }
-    @Override protected void onDestroy() { super.onDestroy(); stopMP(); uiHandler.removeCallbacksAndMessages(null); }
+    @Override protected void onDestroy() { super.onDestroy(); emuLoop.stop(); stopMP(); demos.getSwarm().shutdown(); uiHandler.removeCallbacksAndMessages(null); }
 
     private void hideSystemUI() {
         getWindow().getDecorView().setSystemUiVisibility(
@@ -107,6 +145,7 @@ public class EmulatorActivity extends Activity {
         tvDPY  = findViewById(R.id.reg_dpy);
         tvStatus = findViewById(R.id.status_text);
         tvFps  = findViewById(R.id.tv_fps);
+        tvPerf = findViewById(R.id.tv_perf);
         sbFps  = findViewById(R.id.sb_fps);
     }
 
@@ -123,11 +162,34 @@ public class EmulatorActivity extends Activity {
                 tvStatus.setText(machine.mp_halt ? "HALT" : "RUN ");
                 tvStatus.setTextColor(machine.mp_halt ? 0xFFFF3300 : 0xFF00FF41);
                 if (tvFps != null) tvFps.setText(String.format("%.0f/"+targetFps+"fps", crtView.getActualFps()));
+                perfStats.sampleMp(machine.cycles);
+                if (tvPerf != null && tvPerf.getVisibility() == View.VISIBLE)
+                    tvPerf.setText(perfStats.overlayText());
                 uiHandler.postDelayed(this, 100);
             }
         }, 100);
     }
 
+    // ── Timing overlay / CSV export ───────────────────────────
+    private void wirePerfOverlay() {
+        if (tvFps == null || tvPerf == null) return;
+        tvFps.setOnClickListener(v ->
+            tvPerf.setVisibility(tvPerf.getVisibility() == View.VISIBLE ? View.GONE : View.VISIBLE));
+        tvFps.setOnLongClickListener(v -> { exportPerfCsv(); return true; });
+    }
+
+    private void exportPerfCsv() {
+        java.io.File dir = getExternalFilesDir(null);
+        if (dir == null) dir = getFilesDir();
+        try {
+            java.io.File f = perfStats.writeCsv(dir,
+                android.os.Build.MANUFACTURER + " " + android.os.Build.MODEL);
+            Toast.makeText(this, "Perf CSV: " + f.getAbsolutePath(), Toast.LENGTH_LONG).show();
+        } catch (java.io.IOException e) {
+            Toast.makeText(this, "CSV export failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
+        }
+    }
+
     private void startMP() {
         stopMP();
         mpRunning = true;
@@ -172,6 +234,11 @@ public class EmulatorActivity extends Activity {
         mpThread.start();
     }
 
+    /** startMP, or defer it to onResume while the activity is paused (e.g. in onActivityResult). */
+    private void runMP() {
+        if (resumed) startMP(); else { stopMP(); mpPaused = true; }
+    }
+
     private void stopMP() {
         mpRunning = false;
         if (mpThread != null) try { mpThread.join(300); } catch (InterruptedException ignored) {}
@@ -197,6 +264,7 @@ public class EmulatorActivity extends Activity {
                 public void onProgressChanged(SeekBar s, int p, boolean u) {
                     targetFps = p+1;
                     crtView.setMaxFps(targetFps);
+                    emuLoop.setFrameRate(targetFps);   // game speed stays at Demos.SIM_HZ
                 }
                 public void onStartTrackingTouch(SeekBar s) {}
                 public void onStopTrackingTouch(SeekBar s)  {}
@@ -216,6 +284,20 @@ public class EmulatorActivity extends Activity {
             machine.mp_run  = false;
             startMP();
         });
+        Button btnSwarm = findViewById(R.id.btn_demo_swarm);
+        if (btnSwarm != null) btnSwarm.setOnClickListener(v -> {
+            demos.setDemo(Demos.Type.SWARM);
+            machine.mp_halt = true;
+            machine.mp_run  = false;
+            startMP();                // keyboard pump for W/S/P/R
+        });
+        Button btnPong = findViewById(R.id.btn_demo_pong);
+        if (btnPong != null) btnPong.setOnClickListener(v -> {
+            demos.setDemo(Demos.Type.PONG);
+            machine.mp_halt = true;
+            machine.mp_run  = false;
+            startMP();                // keyboard pump for W/S and I/K
+        });
         Button btnMW = findViewById(R.id.btn_mazewar);
         if (btnMW != null) btnMW.setOnClickListener(v -> {
             demos.setDemo(Demos.Type.MAZEWAR);
@@ -267,7 +349,69 @@ public class EmulatorActivity extends Activity {
 
     private void wireGameMenu() {
         Button b = findViewById(R.id.btn_games);
-        if (b!=null) b.setOnClickListener(v -> showGameMenu());
+        if (b!=null) {
+            b.setOnClickListener(v -> showGameMenu());
+            b.setOnLongClickListener(v -> { showSettings(); return true; });
+        }
+    }
+
+    // ── Settings (long-press GAMES) ───────────────────────────
+    private static final int[] MAZE_SIZES   = {16, 32, 64, 128, 256, 512, 1024};
+    private static final int[] AI_CAPS      = {7, 16, 32, 64, 128, 256, 512};
+    private static final int[] PERSIST_PCT  = {0, 25, 50, 75, 90};        // % of light kept per frame
+    private static final int[] BLOOM_PCT    = {25, 50, 90, 150, 250};     // strength × 100
+    private static final int[] BLOOM_DIVS   = {2, 4, 8};
+
+    private void showSettings() {
+        String[] items = {
+            "Maze War arena size",
+            "Maze War AI enemies (max)",
+            "Phosphor persistence",
+            "Bloom: " + (crtView.isBloomEnabled() ? "on" : "off"),
+            "Bloom strength",
+            "Bloom resolution"
+        };
+        new AlertDialog.Builder(this)
+            .setTitle("Settings")
+            .setItems(items, (d, w) -> {
+                switch (w) {
+                    case 0: case 1: {
+                        demos.initMazeWar();
+                        MazeWarGame g = demos.getMazeWarGame();
+                        if (w == 0) pickInt("Arena size (next game)", MAZE_SIZES, "%1$dx%1$d",
+                                            g.getMazeSize(), g::setMazeSize);
+                        else        pickInt("AI enemies per level", AI_CAPS, "%d",
+                                            g.getAiCap(), g::setAiCap);
+                        break;
+                    }
+                    case 2: pickInt("Phosphor persistence", PERSIST_PCT, "%d%%",
+                                    Math.round(crtView.getPersistence() * 100),
+                                    v -> crtView.setPersistence(v / 100f)); break;
+                    case 3: crtView.setBloomEnabled(!crtView.isBloomEnabled()); break;
+                    case 4: pickInt("Bloom strength", BLOOM_PCT, "%d%%",
+                                    Math.round(crtView.getBloomStrength() * 100),
+                                    v -> crtView.setBloomStrength(v / 100f)); break;
+                    default: pickInt("Bloom resolution (1/n)", BLOOM_DIVS, "1/%d",
+                                     crtView.getBloomDivisor(), crtView::setBloomDivisor); break;
+                }
+            })
+            .setNegativeButton("Close", null).show();
+    }
+
+    /** Single-choice dialog over values (labelled with fmt); the current value is checked. */
+    private interface IntSetter { void set(int v); }
+
+    private void pickInt(String title, int[] values, String fmt, int current, IntSetter apply) {
+        String[] labels = new String[values.length];
+        int checked = -1;
+        for (int i = 0; i < values.length; i++) {
+            labels[i] = String.format(fmt, values[i]);
+            if (values[i] == current) checked = i;
+        }
+        new AlertDialog.Builder(this)
+            .setTitle(title)
+            .setSingleChoiceItems(labels, checked, (d, w) -> { apply.set(values[w]); d.dismiss(); })
+            .setNegativeButton("Cancel", null).show();
     }
 
     private void showGameMenu() {
@@ -343,7 +487,23 @@ public class EmulatorActivity extends Activity {
         }
     }
 
+    /**
+     * The load resets the machine, rewrites memory and pre-runs the DP,
+     * which EmuLoop and the MP thread use, so both are stopped for the
+     * duration and restarted afterwards.
+     */
     private void loadFileIntoMachine(String filename, byte[] bytes) {
+        boolean mp = mpRunning || mpPaused;
+        emuLoop.stop();
+        stopMP();
+        try { loadStopped(filename, bytes); }
+        finally {
+            if (resumed) emuLoop.start();
+            if (mp || machine.mp_run) runMP();
+        }
+    }
+
+    private void loadStopped(String filename, byte[] bytes) {
         machine.reset();
         // Clear memory completely before loading
         java.util.Arrays.fill(machine.mem, 0);
@@ -369,8 +529,7 @@ public class EmulatorActivity extends Activity {
 
         // Pre-run DP once to populate display list before first render
         machine.dlClear();
-        for (int i = 0; i < 8192 && !machine.dp_halt; i++)
-            machine.dpStep();
+        machine.dpRun(8192);
         int nvecLoaded = machine.nvec;
 
         // MP: only start if there's a real MP program (not just DP code at 0x050)
@@ -381,7 +540,6 @@ public class EmulatorActivity extends Activity {
             machine.mp_pc   = startAddr;
             machine.mp_halt = false;
             machine.mp_run  = true;
-            startMP();
         } else {
             machine.mp_halt = true;
             machine.mp_run  = false;
@@ -441,13 +599,18 @@ public class EmulatorActivity extends Activity {
     }
 
     private void runGame(GameLoader.Game g) {
-        machine.reset();
-        int words = machine.assemble(g.source);
-        machine.mp_pc = 0x050;
-        machine.mp_halt = false;
-        machine.mp_run  = true;
-        demos.setDemo(Demos.Type.USER_ASM);
-        startMP();
+        emuLoop.stop();   // see loadFileIntoMachine
+        stopMP();
+        int words;
+        try {
+            machine.reset();
+            words = machine.assemble(g.source);
+            machine.mp_pc = 0x050;
+            machine.mp_halt = false;
+            machine.mp_run  = true;
+            demos.setDemo(Demos.Type.USER_ASM);
+        } finally { if (resumed) emuLoop.start(); }
+        runMP();
         Toast.makeText(this, g.name+" ("+words+" words)", Toast.LENGTH_SHORT).show();
     }
 
@@ -0,0 +1,91 @@
+package com.imlac.pds1;
+
+/**
+ * Fixed-point trigonometry for demo geometry.
+ *
+ * Angles are integers, 4096 per full turn; sine and cosine come from one
+ * table in Q14 (16384 = 1.0), so a rotated point costs two lookups, two
+ * integer multiplies and two shifts instead of two double-precision
+ * library calls. Circles and ellipses are tessellated once per
+ * (rx, ry, segs) into packed segments that Machine.dlSegments() copies
+ * straight into the display list.
+ *
+ * The circle cache is not synchronized: all demos run on the emulation
+ * thread.
+ */
+public final class FixedTrig {
+
+    private FixedTrig() {}
+
+    public static final int ANG_BITS = 12;
+    public static final int TURN     = 1 << ANG_BITS;   // 4096 = 2π
+    public static final int MASK     = TURN - 1;
+    public static final int ONE      = 1 << 14;         // Q14 unit
+
+    // sin over one and a quarter turns, so cos(a) = SIN[a + TURN/4] needs no wrap
+    private static final short[] SIN = new short[TURN + TURN / 4];
+    static {
+        for (int i = 0; i < SIN.length; i++)
+            SIN[i] = (short) Math.round(Math.sin(i * (2 * Math.PI / TURN)) * ONE);
+    }
+
+    private static final double RAD_TO_ANG = TURN / (2 * Math.PI);
+
+    /** Radians to table angle (wrapped). */
+    public static int angle(double rad) { return (int) Math.round(rad * RAD_TO_ANG) & MASK; }
+
+    /** Fraction num/den of a full turn, as table angle. */
+    public static int turn(int num, int den) { return (int)((long) num * TURN / den) & MASK; }
+
+    public static int sin(int a) { return SIN[a & MASK]; }
+    public static int cos(int a) { return SIN[(a & MASK) + TURN / 4]; }
+
+    /** r·sin(a), r·cos(a) rounded to the nearest integer. */
+    public static int sinMul(int a, int r) { return (SIN[a & MASK] * r + (ONE >> 1)) >> 14; }
+    public static int cosMul(int a, int r) { return (SIN[(a & MASK) + TURN / 4] * r + (ONE >> 1)) >> 14; }
+
+    // ── Circle tessellation cache ─────────────────────────────
+    // Open addressing on (rx, ry, segs); values are x1,y1,x2,y2 segments
+    // relative to the centre. Cleared wholesale if it ever fills up.
+    private static final int CACHE_SIZE = 2048;            // power of two
+    private static final int CACHE_MAX  = CACHE_SIZE / 2;  // max load
+    private static final long[]  ckey = new long[CACHE_SIZE];
+    private static final int[][] cval = new int[CACHE_SIZE][];
+    private static int cfill = 0;
+
+    /**
+     * Closed polygon approximating an ellipse of radii rx, ry with segs
+     * segments, starting at angle 0, as packed segments around (0, 0).
+     */
+    public static int[] ellipse(int rx, int ry, int segs) {
+        long key = ((long)(rx & 0xFFFFF) << 40) | ((long)(ry & 0xFFFFF) << 20) | (segs & 0xFFFFF);
+        int slot = (int)((key * 0x9E3779B97F4A7C15L) >>> 53) & (CACHE_SIZE - 1);
+        while (cval[slot] != null) {
+            if (ckey[slot] == key) return cval[slot];
+            slot = (slot + 1) & (CACHE_SIZE - 1);
+        }
+        if (cfill >= CACHE_MAX) {
+            java.util.Arrays.fill(cval, null);
+            cfill = 0;
+        }
+        int[] seg = new int[segs * 4];
+        int px = rx, py = 0;
+        for (int i = 1, o = 0; i <= segs; i++) {
+            int a  = turn(i, segs);
+            int nx = cosMul(a, rx), ny = sinMul(a, ry);
+            seg[o++] = px; seg[o++] = py; seg[o++] = nx; seg[o++] = ny;
+            px = nx; py = ny;
+        }
+        ckey[slot] = key;
+        cval[slot] = seg;
+        cfill++;
+        return seg;
+    }
+
+    /** Draw a cached ellipse outline centred on (cx, cy). */
+    public static void ellipse(Machine m, int cx, int cy, int rx, int ry, int segs, float b) {
+        if (segs <= 0) return;
+        int[] seg = ellipse(rx, ry, segs);
+        m.dlSegments(seg, 0, seg.length, cx, cy, b);
+    }
+}
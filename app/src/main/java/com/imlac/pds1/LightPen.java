@@ -0,0 +1,189 @@
+package com.imlac.pds1;
+
+/**
+ * Light pen emulation: touch samples are tested against the vectors of
+ * the current frame, and Machine.lpen_x / lpen_y / lpen_hit (IOT 0x10)
+ * are set as if the pen had seen the beam.
+ *
+ * The UI thread only queues samples (offer/release, lock-free, no
+ * allocation). The emulation thread calls apply() once per tick; it
+ * owns the Machine, so no locking is needed there either.
+ *
+ * Hit tests go through a uniform grid over the 1024×1024 screen: each
+ * vector is listed in every cell its segment passes through, and a query
+ * only looks at the ≤ 2×2 cells under the pen radius. The grid is built
+ * lazily — only while the pen is in use, and only when the frame changed.
+ */
+public class LightPen {
+
+    private static final int CELL  = 32;             // PDS units per cell
+    private static final int GRID  = 1024 / CELL;
+    private static final int CELLS = GRID * GRID;
+
+    // ── Sample queue (UI thread → emulation thread) ───────────
+    // Single-producer / single-consumer ring of packed x | y << 16.
+    private static final int RING = 128;
+    private final int[] ring = new int[RING];
+    private volatile int head = 0;   // written by producer
+    private volatile int tail = 0;   // written by consumer
+    private volatile boolean down = false;
+
+    // ── Grid (emulation thread only) ──────────────────────────
+    private final int[] cellStart = new int[CELLS + 1];
+    private final int[] cellFill  = new int[CELLS];
+    private int[] cellList = new int[Machine.MAX_VEC * 2];
+    private final float[] clipPq = new float[8];
+    private long gridHash = 0;           // content hash of the indexed frame
+    private boolean gridValid = false;
+    private DisplayFrame flat;           // frame plus its retained layers, when it has any
+
+    private volatile int radius = 12;   // hit distance, PDS units
+    private int lastX, lastY;
+    private int hitX, hitY;             // nearest beam position of the last hit
+
+    /** Hit distance in PDS units (1..CELL/2). */
+    public void setRadius(int r) { radius = Math.max(1, Math.min(CELL / 2, r)); }
+
+    /** Queue one pen position (PDS coordinates). UI thread. */
+    public void offer(int x, int y) {
+        down = true;
+        int h = head;
+        if (h - tail >= RING) return;      // emulation thread fell behind — drop
+        ring[h & (RING - 1)] = (x & 0xFFFF) | (y << 16);
+        head = h + 1;
+    }
+
+    /** Pen lifted. UI thread. */
+    public void release() { down = false; }
+
+    /**
+     * Drain queued samples and update the machine's light pen registers.
+     * Emulation thread; f is the frame currently on screen.
+     */
+    public void apply(Machine m, DisplayFrame f) {
+        int h = head, t = tail;
+        if (!down && h == t) { m.lpen_hit = false; return; }
+
+        if (f.nLayers > 0) {
+            if (flat == null) flat = new DisplayFrame();
+            if (!gridValid || gridHash != f.hash) f.flattenInto(flat);
+            f = flat;
+        }
+        if (!gridValid || gridHash != f.hash) buildGrid(f);
+
+        boolean hit = false;
+        if (h == t) {
+            hit = test(f, lastX, lastY);   // pen held still over a changing frame
+        } else {
+            // All samples since the last tick; the first one that hits wins
+            for (; t != h; t++) {
+                int s = ring[t & (RING - 1)];
+                lastX = (short) s; lastY = s >> 16;
+                if (!hit) hit = test(f, lastX, lastY);
+            }
+            tail = t;
+        }
+        m.lpen_x   = hit ? hitX : lastX;
+        m.lpen_y   = hit ? hitY : lastY;
+        m.lpen_hit = hit;
+    }
+
+    // ── Grid build ────────────────────────────────────────────
+
+    /** Two-pass counting sort of vector indices into the cells each segment crosses. */
+    private void buildGrid(DisplayFrame f) {
+        java.util.Arrays.fill(cellFill, 0);
+        int total = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < f.n; i++) {
+                if (f.pt[i]) visit(i, f.x1[i] / CELL, f.y1[i] / CELL, pass);
+                else walk(i, f.x1[i], f.y1[i], f.x2[i], f.y2[i], pass);
+            }
+            if (pass == 0) {
+                for (int c = 0; c < CELLS; c++) { cellStart[c] = total; total += cellFill[c]; cellFill[c] = 0; }
+                cellStart[CELLS] = total;
+                if (total > cellList.length) cellList = new int[total + total / 2];
+            }
+        }
+        gridHash  = f.hash;
+        gridValid = true;
+    }
+
+    private void visit(int i, int cx, int cy, int pass) {
+        if (cx < 0 || cy < 0 || cx >= GRID || cy >= GRID) return;
+        int c = cy * GRID + cx;
+        if (pass == 0) cellFill[c]++;
+        else cellList[cellStart[c] + cellFill[c]++] = i;
+    }
+
+    /** Amanatides–Woo cell traversal of a segment, clipped to the screen first. */
+    private void walk(int i, float ax, float ay, float bx, float by, int pass) {
+        // Liang–Barsky clip against 0..1023
+        float dx = bx - ax, dy = by - ay, t0 = 0f, t1 = 1f;
+        float[] pq = clipPq;
+        pq[0] = -dx; pq[1] = ax;
+        pq[2] =  dx; pq[3] = 1023f - ax;
+        pq[4] = -dy; pq[5] = ay;
+        pq[6] =  dy; pq[7] = 1023f - ay;
+        for (int k = 0; k < 8; k += 2) {
+            float p = pq[k], q = pq[k + 1];
+            if (p == 0f) { if (q < 0f) return; continue; }
+            float r = q / p;
+            if (p < 0f) { if (r > t1) return; if (r > t0) t0 = r; }
+            else        { if (r < t0) return; if (r < t1) t1 = r; }
+        }
+        float sx = ax + dx * t0, sy = ay + dy * t0;
+        float ex = ax + dx * t1, ey = ay + dy * t1;
+
+        int cx = (int) sx / CELL, cy = (int) sy / CELL;
+        int tx = (int) ex / CELL, ty = (int) ey / CELL;
+        int stepX = dx > 0 ? 1 : -1, stepY = dy > 0 ? 1 : -1;
+        float adx = Math.abs(dx), ady = Math.abs(dy);
+        float tMaxX = adx < 1e-6f ? Float.MAX_VALUE
+                    : ((cx + (stepX > 0 ? 1 : 0)) * CELL - sx) / dx;
+        float tMaxY = ady < 1e-6f ? Float.MAX_VALUE
+                    : ((cy + (stepY > 0 ? 1 : 0)) * CELL - sy) / dy;
+        float tDx = adx < 1e-6f ? Float.MAX_VALUE : CELL / adx;
+        float tDy = ady < 1e-6f ? Float.MAX_VALUE : CELL / ady;
+
+        for (int guard = 0; guard <= 2 * GRID; guard++) {
+            visit(i, cx, cy, pass);
+            if (cx == tx && cy == ty) break;
+            if (tMaxX < tMaxY) { cx += stepX; tMaxX += tDx; }
+            else               { cy += stepY; tMaxY += tDy; }
+        }
+    }
+
+    // ── Query ─────────────────────────────────────────────────
+
+    /** Nearest vector within the pen radius; on a hit, hitX/hitY hold the beam position. */
+    private boolean test(DisplayFrame f, int px, int py) {
+        int r = radius;
+        int cx0 = Math.max(0, (px - r) / CELL), cx1 = Math.min(GRID - 1, (px + r) / CELL);
+        int cy0 = Math.max(0, (py - r) / CELL), cy1 = Math.min(GRID - 1, (py + r) / CELL);
+        if (px + r < 0 || py + r < 0) return false;
+
+        float best = (float) r * r;
+        boolean hit = false;
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                int c = cy * GRID + cx;
+                for (int k = cellStart[c], end = cellStart[c + 1]; k < end; k++) {
+                    int i = cellList[k];
+                    if (f.br[i] < 10) continue;   // too dim to trigger the pen
+                    float ax = f.x1[i], ay = f.y1[i], qx = ax, qy = ay;
+                    if (!f.pt[i]) {
+                        float dx = f.x2[i] - ax, dy = f.y2[i] - ay;
+                        float len2 = dx * dx + dy * dy;
+                        float t = len2 == 0f ? 0f : ((px - ax) * dx + (py - ay) * dy) / len2;
+                        if (t < 0f) t = 0f; else if (t > 1f) t = 1f;
+                        qx = ax + dx * t; qy = ay + dy * t;
+                    }
+                    float ex = px - qx, ey = py - qy, d2 = ex * ex + ey * ey;
+                    if (d2 <= best) { best = d2; hit = true; hitX = Math.round(qx); hitY = Math.round(qy); }
+                }
+            }
+        }
+        return hit;
+    }
+}
@@ -64,6 +64,11 @@ public class Machine {
     public final int[]   vbr    = new int[MAX_VEC];   // 0-255
     public int           nvec   = 0;
 
+    // Retained layers shown with this display list (drawn beneath it)
+    public static final int MAX_LAYERS = 8;
+    public final VectorLayer.Snapshot[] layers = new VectorLayer.Snapshot[MAX_LAYERS];
+    public int           nlayers = 0;
+
     // ── Console ───────────────────────────────────────────────
     public final StringBuilder console = new StringBuilder();
 
@@ -83,7 +88,7 @@ public class Machine {
         dp_ret_top = 0;
         keyboard = 0;
         cycles = 0;
-        nvec = 0;
+        nvec = 0; nlayers = 0;
     }
 
     public void powerOn() {
@@ -112,7 +117,24 @@ public class Machine {
         nvec++;
     }
 
-    public void dlClear() { nvec = 0; }
+    /** Bulk-append pre-built segments seg[from..to) (x1,y1,x2,y2 each), offset by (dx, dy). */
+    public void dlSegments(int[] seg, int from, int to, int dx, int dy, float bright) {
+        int n = nvec, b = (int)(bright * 255);
+        for (int i = from; i < to && n < MAX_VEC; i += 4, n++) {
+            vx1[n] = seg[i]   + dx; vy1[n] = seg[i+1] + dy;
+            vx2[n] = seg[i+2] + dx; vy2[n] = seg[i+3] + dy;
+            vpt[n] = false;
+            vbr[n] = b;
+        }
+        nvec = n;
+    }
+
+    /** Show a retained layer with this frame; it is not copied into the display list. */
+    public void dlLayer(VectorLayer l) {
+        if (nlayers < MAX_LAYERS) layers[nlayers++] = l.snapshot();
+    }
+
+    public void dlClear() { nvec = 0; nlayers = 0; }
 
     // ──────────────────────────────────────────────────────────
     //  MAIN PROCESSOR — execute one instruction
@@ -294,111 +316,170 @@ public class Machine {
     }
 
     // ──────────────────────────────────────────────────────────
-    //  DISPLAY PROCESSOR — execute one instruction
+    //  DISPLAY PROCESSOR — predecoded micro-ops
     // ──────────────────────────────────────────────────────────
-    public void dpStep() {
-        if (!dp_enabled || dp_halt) return;
-
-        int word = mem[dp_pc & ADDR_MASK] & WORD_MASK;
-        dp_pc = (dp_pc + 1) & ADDR_MASK;
+    // Each memory word the DP fetches is decoded once into a micro-op:
+    //   dpUop  — operation kind (UOP_*)
+    //   dpArgA — pre-signed dx / address / intensity / scale index / flag
+    //   dpArgB — pre-signed dy / second operand
+    // dpTag holds the raw word the entry was decoded from, so any write
+    // to mem[] (MP stores, loaders, Java-side patching) invalidates that
+    // one word: the next fetch sees a tag mismatch and re-decodes it.
+    private static final byte UOP_NOP   = 0;
+    private static final byte UOP_LDX   = 1;
+    private static final byte UOP_LDY   = 2;
+    private static final byte UOP_LDXY  = 3;
+    private static final byte UOP_VEC   = 4;
+    private static final byte UOP_PT    = 5;
+    private static final byte UOP_INT   = 6;
+    private static final byte UOP_SCALE = 7;
+    private static final byte UOP_JMP   = 8;
+    private static final byte UOP_JMS   = 9;
+    private static final byte UOP_RET   = 10; // return, halt if stack empty
+    private static final byte UOP_HALT  = 11;
+
+    private final int[]   dpTag  = new int[MEM_SIZE];
+    private final byte[]  dpUop  = new byte[MEM_SIZE];
+    private final short[] dpArgA = new short[MEM_SIZE];
+    private final short[] dpArgB = new short[MEM_SIZE];
+
+    { java.util.Arrays.fill(dpTag, -1); }
+
+    // Brightness byte per DP intensity level (was dp_intensity / 7.0f, min 0.05)
+    private static final int[] DP_BRIGHT = new int[8];
+    static {
+        for (int i = 0; i < 8; i++)
+            DP_BRIGHT[i] = (int)(Math.max(0.05f, i / 7.0f) * 255);
+    }
+    private static final float[] DP_SCALES = {0.25f, 0.5f, 1.0f, 2.0f};
 
+    private void dpDecode(int a, int word) {
         int op   = (word >> 12) & 0xF;
         int addr =  word & ADDR_MASK;
-
-        float bright = dp_intensity / 7.0f;
-        if (bright < 0.05f) bright = 0.05f;
+        byte u = UOP_NOP; int ea = 0, eb = 0;
 
         switch (op) {
             case 0x0: // NOP or intensity
-                if ((word & 0x0E00) == 0x0E00)
-                    dp_intensity = word & 0x7;
+                if ((word & 0x0E00) == 0x0E00) { u = UOP_INT; ea = word & 0x7; }
+                break;
+            case 0x1: case 0xC: u = UOP_LDX; ea = addr; break; // DLXA
+            case 0x2: case 0xD: u = UOP_LDY; ea = addr; break; // DLYA
+            case 0x3:   // DSVH — Short Vector (signed 5-bit dx,dy)
+            case 0x4: { // DLVH — Long Vector (signed 5-bit × 8)
+                int mul = (op == 0x4) ? 8 : 1;
+                ea = ((word >> 6) & 0x1F) * mul;
+                eb =  (word       & 0x1F) * mul;
+                if ((word & 0x0800) != 0) ea = -ea;
+                if ((word & 0x0020) != 0) eb = -eb;
+                u = UOP_VEC;
+                break; }
+            case 0x5: u = UOP_JMP; ea = addr; break;           // DJMP
+            case 0x6: u = UOP_JMS; ea = addr; break;           // DJMS
+            case 0x7: // DPTS / DSTS
+                if ((word & 0x0800) != 0)      u = UOP_PT;
+                else if ((word & 0x0010) != 0) { u = UOP_INT; ea = word & 0x7; }
                 break;
-
-            case 0x1: // DLXA — Load X
-                dp_x = addr;
+            case 0x8: // DHLT (bit 11 = return if inside subroutine)
+                u = ((word & 0x0800) != 0) ? UOP_RET : UOP_HALT;
                 break;
-
-            case 0x2: // DLYA — Load Y
-                dp_y = addr;
+            case 0x9: u = UOP_INT;   ea = word & 0x7; break;   // DEIM
+            case 0xA: u = UOP_SCALE; ea = word & 0x3; break;   // DVSF
+            case 0xB: u = UOP_RET;   break;                    // DRJM
+            case 0xE: // DXYA — load X and Y packed
+                u = UOP_LDXY; ea = (word >> 6) & 0x1F; eb = word & 0x1F;
                 break;
+            case 0xF: u = UOP_HALT;  break;
+        }
+        dpUop[a]  = u;
+        dpArgA[a] = (short) ea;
+        dpArgB[a] = (short) eb;
+        dpTag[a]  = word;
+    }
 
-            case 0x3: // DSVH — Short Vector (signed 5-bit dx,dy)
-                { int dx = (word >> 6) & 0x1F;
-                  int dy =  word       & 0x1F;
-                  if ((word & 0x0800) != 0) dx = -dx;
-                  if ((word & 0x0020) != 0) dy = -dy;
-                  int nx = (dp_x + dx) & 1023;
-                  int ny = (dp_y + dy) & 1023;
-                  dlLine(dp_x, dp_y, nx, ny, bright);
-                  dp_x = nx; dp_y = ny; }
-                break;
+    // ──────────────────────────────────────────────────────────
+    //  DISPLAY PROCESSOR — execute one instruction
+    // ──────────────────────────────────────────────────────────
+    public void dpStep() {
+        if (!dp_enabled || dp_halt) return;
 
-            case 0x4: // DLVH — Long Vector (signed 5-bit × 8)
-                { int dx = ((word >> 6) & 0x1F) * 8;
-                  int dy =  (word       & 0x1F) * 8;
-                  if ((word & 0x0800) != 0) dx = -dx;
-                  if ((word & 0x0020) != 0) dy = -dy;
-                  int nx = (dp_x + dx) & 1023;
-                  int ny = (dp_y + dy) & 1023;
-                  dlLine(dp_x, dp_y, nx, ny, bright);
+        int pc   = dp_pc & ADDR_MASK;
+        int word = mem[pc] & WORD_MASK;
+        if (dpTag[pc] != word) dpDecode(pc, word);
+        dp_pc = (pc + 1) & ADDR_MASK;
+
+        switch (dpUop[pc]) {
+            case UOP_NOP: break;
+            case UOP_LDX: dp_x = dpArgA[pc]; break;
+            case UOP_LDY: dp_y = dpArgA[pc]; break;
+            case UOP_LDXY:
+                dp_x = dpArgA[pc]; dp_y = dpArgB[pc];
+                break;
+
+            case UOP_VEC:
+                { int nx = (dp_x + dpArgA[pc]) & 1023;
+                  int ny = (dp_y + dpArgB[pc]) & 1023;
+                  int n  = nvec;
+                  if (n < MAX_VEC) {
+                      vx1[n] = dp_x; vy1[n] = dp_y;
+                      vx2[n] = nx;   vy2[n] = ny;
+                      vpt[n] = false;
+                      vbr[n] = DP_BRIGHT[dp_intensity & 7];
+                      nvec = n + 1;
+                  }
                   dp_x = nx; dp_y = ny; }
                 break;
 
-            case 0x5: // DJMP
-                dp_pc = addr;
+            case UOP_PT:
+                { int n = nvec;
+                  if (n < MAX_VEC) {
+                      vx1[n] = dp_x; vy1[n] = dp_y;
+                      vpt[n] = true;
+                      vbr[n] = DP_BRIGHT[dp_intensity & 7];
+                      nvec = n + 1;
+                  } }
                 break;
 
-            case 0x6: // DJMS — Jump to Subroutine
+            case UOP_INT:   dp_intensity = dpArgA[pc]; break;
+            case UOP_SCALE: dp_scale = DP_SCALES[dpArgA[pc]]; break;
+            case UOP_JMP:   dp_pc = dpArgA[pc]; break;
+
+            case UOP_JMS: // Jump to Subroutine
                 if (dp_ret_top < 15)
                     dp_ret_stack[dp_ret_top++] = dp_pc;
-                dp_pc = addr;
-                break;
-
-            case 0x7: // DPTS / DSTS
-                if ((word & 0x0800) != 0)
-                    dlPoint(dp_x, dp_y, bright);
-                else if ((word & 0x0010) != 0)
-                    dp_intensity = word & 0x7;
-                break;
-
-            case 0x8: // DHLT
-                if ((word & 0x0800) != 0 && dp_ret_top > 0)
-                    dp_pc = dp_ret_stack[--dp_ret_top];
-                else
-                    dp_halt = true;
-                break;
-
-            case 0x9: // DEIM — intensity
-                dp_intensity = word & 0x7;
-                break;
-
-            case 0xA: // DVSF — scale
-                { int sf = word & 0x3;
-                  float[] sc = {0.25f, 0.5f, 1.0f, 2.0f};
-                  dp_scale = sc[sf]; }
+                dp_pc = dpArgA[pc];
                 break;
 
-            case 0xB: // DRJM — Return from subroutine
+            case UOP_RET:
                 if (dp_ret_top > 0)
                     dp_pc = dp_ret_stack[--dp_ret_top];
                 else
                     dp_halt = true;
                 break;
 
-            case 0xC: dp_x = addr; break;
-            case 0xD: dp_y = addr; break;
-
-            case 0xE: // DXYA — load X and Y packed
-                dp_x = (word >> 6) & 0x1F;
-                dp_y =  word       & 0x1F;
-                break;
-
-            case 0xF:
+            case UOP_HALT:
                 dp_halt = true;
                 break;
         }
     }
 
+    /** Run the DP until it halts or maxSteps instructions; returns steps executed. */
+    public int dpRun(int maxSteps) {
+        int i = 0;
+        while (i < maxSteps && dp_enabled && !dp_halt) { dpStep(); i++; }
+        return i;
+    }
+
+    /**
+     * Run the DP from addr as a subroutine with an empty return stack: its
+     * final DRJM (or a DHLT) stops it. Returns steps executed.
+     */
+    public int dpCall(int addr, int maxSteps) {
+        dp_ret_top = 0;
+        dp_pc      = addr & ADDR_MASK;
+        dp_halt    = false;
+        return dpRun(maxSteps);
+    }
+
     // ──────────────────────────────────────────────────────────
     //  ASSEMBLER — two-pass, PDS-1 mnemonics
     // ──────────────────────────────────────────────────────────
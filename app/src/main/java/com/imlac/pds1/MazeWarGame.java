@@ -1,9 +1,6 @@
 package com.imlac.pds1;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
-import java.util.Random;
 
 /**
  * Maze War — Imlac PDS-1 (1974).
@@ -17,13 +14,74 @@ public class MazeWarGame implements NetSession.EventListener {
     private static final int VW=VX1-VX0, VH=VY1-VY0;
 
     // ── Maze ─────────────────────────────────────────────────
-    private static final int MZ = 16;
-    private final int[] maze = new int[MZ*MZ];
+    // One byte per cell, low four bits = walls N/E/S/W (0xF = solid rock).
+    // Size is chosen per game (setMazeSize); network games stay 16×16.
+    public static final int MZ_DEFAULT = 16, MZ_MIN = 8, MZ_MAX = 1024;
+    private static final int VISITED = 0x10;     // carve marker, cleared afterwards
+    private int mz = MZ_DEFAULT;
+    private volatile int mzWanted = MZ_DEFAULT;   // set from the UI thread, used by the next game
+    private byte[] maze = new byte[mz*mz];
     private static final int[] DX  = { 0, 1, 0,-1};
     private static final int[] DY  = { 1, 0,-1, 0};
     private static final int[] OPP = { 2, 3, 0, 1};
     private long mazeSeed = 0;
 
+    // Session randomness (AI, spawns, next-level mazes) is reseeded from
+    // mazeSeed at game start, so a seed replays the whole match.
+    private final Rng rng     = new Rng(0);
+    private final Rng mazeRng = new Rng(0);
+
+    // Open corridor length from each (cell, dir) before a wall, capped at
+    // RUN_CAP. Rebuilt with the maze; the 3D view (depth ahead, side
+    // openings from the perpendicular planes), entity visibility and AI
+    // line of sight are lookups into it.
+    private static final int RUN_CAP = 255;
+    private byte[] runs = new byte[mz*mz*4];
+
+    // BFS steps from the player's cell to every cell (FAR = unreached),
+    // shared by all AI enemies; rebuilt only when the player changes cell.
+    private static final short FAR = Short.MAX_VALUE;
+    private short[] distField = new short[mz*mz];
+    private int[]   bfsQueue  = new int[mz*mz];   // also the carve stack
+    private int distOrigin = -1, distCount = 0;
+
+    // ── Minimap ───────────────────────────────────────────────
+    // Shows the CHUNK×CHUNK block of cells around the player. Each block's
+    // walls are merged into long runs and packed as segments the first time
+    // it is shown; later frames copy the cached layer with one dlSegments().
+    private static final int CHUNK = 16, MINI_CELL = 13;
+    private static final int MINI_X = 800, MINI_Y = VY0;
+    private int[][] miniChunks = new int[1][];
+    private int[]   miniSeg = new int[(CHUNK+1)*CHUNK*8];
+    private int     chunksX = 1;
+    private final VectorLayer miniLayer = new VectorLayer();
+    private int     miniShown = -1;     // chunk currently recorded in miniLayer
+
+    // View frame, vanishing lines and crosshair never change
+    private final VectorLayer viewFrame = new VectorLayer();
+
+    // ── 3D view projection (fixed per depth) ──────────────────
+    private static final int VIEW_MAX = 10;      // deepest corridor cell drawn
+    private static final int SEE_MAX  = 8;       // deepest eyeball drawn
+    private static final int[] LT=new int[VIEW_MAX+2], RT=new int[VIEW_MAX+2];
+    private static final int[] TP=new int[VIEW_MAX+2], BT=new int[VIEW_MAX+2];
+    private static final float[] DEPTH_B=new float[VIEW_MAX+1];
+    private static final int[]   EYE_SZ=new int[SEE_MAX+1];
+    private static final float[] EYE_B =new float[SEE_MAX+1];
+    static {
+        for(int d=0;d<=VIEW_MAX+1;d++){
+            float sc=1.4f/(d+1f);
+            LT[d]=clampX(VCX-(int)(VW/2f*sc)); RT[d]=clampX(VCX+(int)(VW/2f*sc));
+            TP[d]=clampY(VCY-(int)(VH/2f*sc)); BT[d]=clampY(VCY+(int)(VH/2f*sc));
+        }
+        for(int d=0;d<=VIEW_MAX;d++) DEPTH_B[d]=Math.max(0.2f,1f-d*0.1f);
+        for(int d=1;d<=SEE_MAX;d++){
+            float sc=1.4f/(d+.5f);
+            EYE_SZ[d]=Math.max(8,Math.min((int)(VH*.25f*sc),120));
+            EYE_B[d]=Math.max(.3f,.9f-d*.08f);
+        }
+    }
+
     // ── Local player ──────────────────────────────────────────
     private int px=1, py=1, pdir=0, hp=3, score=0, level=1;
     private int moveCd=0, turnCd=0, fireCd=0, hitFlash=0, killFlash=0;
@@ -39,16 +97,52 @@ public class MazeWarGame implements NetSession.EventListener {
     private int     netSendCd = 0;     // send every 3 frames
 
     // ── AI enemies (single-player only) ───────────────────────
-    private static class Enemy {
-        int x,y,dir,think=30,fireCd=80; boolean alive=true;
-    }
-    private final List<Enemy> aiEnemies = new ArrayList<>();
+    // Fixed-capacity pool, one primitive array per field. Dead slots go on
+    // a free list; live slots are those below eHi with eAlive set.
+    public static final int MAX_ENEMIES = 512;
+    private final int[]     eX = new int[MAX_ENEMIES], eY = new int[MAX_ENEMIES];
+    private final int[]     eDir    = new int[MAX_ENEMIES];
+    private final int[]     eThink  = new int[MAX_ENEMIES];
+    private final int[]     eFireCd = new int[MAX_ENEMIES];
+    private final boolean[] eAlive  = new boolean[MAX_ENEMIES];
+    private final int[]     eFree   = new int[MAX_ENEMIES];
+    private int eFreeN = 0, eHi = 0, eLive = 0;
+    private volatile int aiCap = 7;   // enemies per level, upper bound (set from the UI thread)
+
+    // Per-cell occupancy: head of an intrusive list of enemies in each
+    // maze cell, rebuilt once per tick, so a bullet only checks the
+    // enemies in the 3×3 cells around it.
+    private int[] cellHead = new int[mz*mz];
+    private final int[] eNext    = new int[MAX_ENEMIES];
+    private final int[] eCell    = new int[MAX_ENEMIES];   // cells set in cellHead
+    private int eCellN = 0;
 
     // ── Bullets ───────────────────────────────────────────────
-    private static class Bullet {
-        double x,y; int dir,life=55; boolean fromPlayer,alive=true;
-    }
-    private final List<Bullet> bullets = new ArrayList<>();
+    // Same pool layout. Positions are fixed point, SUB units per cell.
+    public static final int MAX_BULLETS = 1024;
+    private static final int SUB_BITS = 8, SUB = 1 << SUB_BITS;
+    private static final int BULLET_STEP = SUB / 5;                 // 0.2 cell per tick
+    private static final int HIT_ENEMY   = SUB * 6 / 10;            // |d| < 0.6 cell
+    private static final int HIT_PLAYER  = SUB * 55 / 100;          // |d| < 0.55 cell
+    private final int[]     bX = new int[MAX_BULLETS], bY = new int[MAX_BULLETS];
+    private final int[]     bDir  = new int[MAX_BULLETS];
+    private final int[]     bLife = new int[MAX_BULLETS];
+    private final boolean[] bFromPlayer = new boolean[MAX_BULLETS];
+    private final boolean[] bAlive = new boolean[MAX_BULLETS];
+    private final int[]     bFree  = new int[MAX_BULLETS];
+    private int bFreeN = 0, bHi = 0, bLive = 0;
+
+    // Peer shots, resets and new connections arrive on the network thread;
+    // they are queued here and applied on the next tick so the pools and
+    // the maze arrays have a single owner.
+    private final int[] peerShots = new int[16];
+    private volatile int peerShotHead = 0;
+    private int peerShotTail = 0;
+    private long    connSeed;
+    private boolean connHost;
+    private volatile boolean connPending = false;
+
+    private final int[] dirScratch = new int[4];
 
     // ── State ─────────────────────────────────────────────────
     private enum State { TITLE, LOBBY, PLAY, DEAD }
@@ -72,6 +166,7 @@ public class MazeWarGame implements NetSession.EventListener {
     //  PUBLIC API
     // ─────────────────────────────────────────────────────────
     public void tick() {
+        if (connPending) applyConnect();
         int k = M.keyboard & 0x7F;
         iUp    |= (k=='W'); iDown  |= (k=='S');
         iLeft  |= (k=='A'); iRight |= (k=='D');
@@ -97,7 +192,10 @@ public class MazeWarGame implements NetSession.EventListener {
     }
 
     // ── Called from Activity buttons ──────────────────────────
-    public void startSinglePlayer() { multiMode=false; startGame(new Random().nextLong()); }
+    public void startSinglePlayer() { startSinglePlayer(Rng.newSeed()); }
+
+    /** Single-player game from a fixed seed — same seed, same maze and AI. */
+    public void startSinglePlayer(long seed) { multiMode=false; startGame(seed); }
 
     public void hostMulti(NetSession n) {
         net = n; multiMode = true;
@@ -124,13 +222,25 @@ public class MazeWarGame implements NetSession.EventListener {
     // ─────────────────────────────────────────────────────────
     @Override
     public void onConnected(boolean asHost, long seed) {
+        // Reallocating the maze here would race the emulation thread's
+        // tick()/draw(); hand the seed over and let tick() apply it.
+        connSeed = seed; connHost = asHost;
+        connPending = true;   // volatile write publishes seed and side
+    }
+
+    /** Start the network round queued by onConnected (emulation thread). */
+    private void applyConnect() {
+        connPending = false;
+        long seed = connSeed;
         mazeSeed = seed;
+        resizeMaze(MZ_DEFAULT);   // the handshake carries only the seed
+        rng.seed(seed);
         genMaze(seed);
         // Players start on opposite corners
-        if (asHost) { px=1;    py=1;    pdir=0; netX=14; netY=14; netDir=2; }
-        else        { px=14;   py=14;   pdir=2; netX=1;  netY=1;  netDir=0; }
+        if (connHost) { px=1;    py=1;    pdir=0; netX=14; netY=14; netDir=2; }
+        else          { px=14;   py=14;   pdir=2; netX=1;  netY=1;  netDir=0; }
         hp=3; score=0; netHp=3; netScore=0; netAlive=true;
-        bullets.clear();
+        clearBullets(); clearEnemies(); peerShotTail = peerShotHead;
         state = State.PLAY;
         msg="CONNECTED! FIGHT!"; msgT=50;
     }
@@ -149,10 +259,10 @@ public class MazeWarGame implements NetSession.EventListener {
 
     @Override
     public void onPeerBullet(int dir) {
-        Bullet b = new Bullet();
-        b.x = netX+.5; b.y = netY+.5;
-        b.dir = dir; b.fromPlayer = false;
-        bullets.add(b);
+        int h = peerShotHead;
+        if (h - peerShotTail >= peerShots.length) return;   // tick fell behind — drop
+        peerShots[h & 15] = dir & 3;
+        peerShotHead = h + 1;
     }
 
     @Override
@@ -175,7 +285,7 @@ public class MazeWarGame implements NetSession.EventListener {
     private void tickTitle() {
         boolean anyNew = (iUp||iDown||iLeft||iRight||iFire)
                        && !(pUp||pDown||pLeft||pRight||pFire);
-        if (anyNew) startGame(new Random().nextLong());
+        if (anyNew) startGame(Rng.newSeed());
     }
 
     private void drawTitle() {
@@ -216,55 +326,225 @@ public class MazeWarGame implements NetSession.EventListener {
     //  GAME INIT
     // ─────────────────────────────────────────────────────────
     private void startGame(long seed) {
-        mazeSeed=seed; genMaze(seed);
+        resizeMaze(multiMode?MZ_DEFAULT:mzWanted);
+        mazeSeed=seed; rng.seed(seed); genMaze(seed);
         px=1; py=1; pdir=0; hp=3; score=0; level=1;
         moveCd=0; turnCd=0; fireCd=0; hitFlash=0; killFlash=0;
-        bullets.clear(); aiEnemies.clear();
-        if (!multiMode) spawnAI(level+1);
+        clearBullets(); clearEnemies();
+        if (!multiMode) spawnAI(Math.min(level+1,aiCap));
         state = State.PLAY;
     }
 
     // ─────────────────────────────────────────────────────────
     //  MAZE
     // ─────────────────────────────────────────────────────────
+    /**
+     * Maze size (cells per side, MZ_MIN..MZ_MAX) for the next single-player
+     * game. Large mazes cost about 15 bytes per cell (walls 1, runs 4,
+     * distance field 2, BFS queue 4, enemy cell heads 4) plus the cached
+     * minimap chunks.
+     */
+    public void setMazeSize(int n){ mzWanted=Math.max(MZ_MIN,Math.min(MZ_MAX,n)); }
+
+    public int getMazeSize(){ return mzWanted; }
+
+    private void resizeMaze(int n){
+        if(n==mz && maze.length==n*n) return;
+        mz=n;
+        maze      = new byte[n*n];
+        runs      = new byte[n*n*4];
+        distField = new short[n*n];
+        bfsQueue  = new int[n*n];
+        cellHead  = new int[n*n];
+        chunksX   = (n+CHUNK-1)/CHUNK;
+        miniChunks= new int[chunksX*chunksX][];
+    }
+
     private void genMaze(long seed) {
-        Arrays.fill(maze,0xF);
-        Random rnd = new Random(seed);
-        boolean[] vis = new boolean[MZ*MZ];
-        carve(1,1,vis,rnd);
-    }
-    private void carve(int x, int y, boolean[] vis, Random rnd) {
-        vis[y*MZ+x]=true;
-        int[] d={0,1,2,3};
-        for (int i=3;i>0;i--){int j=rnd.nextInt(i+1);int t=d[i];d[i]=d[j];d[j]=t;}
-        for (int dd:d){
-            int nx=x+DX[dd],ny=y+DY[dd];
-            if (nx<1||nx>=MZ-1||ny<1||ny>=MZ-1||vis[ny*MZ+nx]) continue;
-            maze[y*MZ+x]   &=~(1<<dd);
-            maze[ny*MZ+nx] &=~(1<<OPP[dd]);
-            carve(nx,ny,vis,rnd);
+        Arrays.fill(maze,(byte)0xF);
+        mazeRng.seed(seed);
+        carve(mazeRng);
+        buildRuns();
+        Arrays.fill(distField,FAR); distOrigin=-1; distCount=0;
+        Arrays.fill(cellHead,-1); eCellN=0;
+        Arrays.fill(miniChunks,null); miniShown=-1;
+    }
+
+    /** Breadth-first distances from cell 'from' through open walls, capped below FAR. */
+    private void buildDistField(int from){
+        for(int i=0;i<distCount;i++) distField[bfsQueue[i]]=FAR;   // undo last run only
+        int head=0,tail=0;
+        distField[from]=0; bfsQueue[tail++]=from;
+        while(head<tail){
+            int c=bfsQueue[head++], nd=distField[c]+1;
+            if(nd>=FAR) break;
+            int w=maze[c];
+            for(int dir=0;dir<4;dir++){
+                if((w&(1<<dir))!=0) continue;
+                int n=c+DY[dir]*mz+DX[dir];
+                if(distField[n]!=FAR) continue;
+                distField[n]=(short)nd; bfsQueue[tail++]=n;
+            }
         }
+        distOrigin=from; distCount=tail;
+    }
+
+    /** Open direction from (x, y) one step closer to the player, or -1. */
+    private int downhill(int x,int y){
+        int c=y*mz+x, best=distField[c], dir=-1, w=maze[c];
+        for(int d=0;d<4;d++){
+            if((w&(1<<d))!=0) continue;
+            int v=distField[c+DY[d]*mz+DX[d]];
+            if(v<best){best=v;dir=d;}
+        }
+        return dir;
+    }
+
+    /** Corridor runs for every (cell, dir), one plane per dir; each cell reuses its neighbour's run. */
+    private void buildRuns(){
+        final byte[] m=maze, r=runs;
+        final int n=mz, nn=n*n;
+        // S (2) and W (3) look at lower indices: one forward pass fills both;
+        // N (0) and E (1) look at higher ones: one backward pass.
+        // Run = open ? min(RUN_CAP, 1 + neighbour's run) : 0, without branches.
+        final int bS=2*nn, bW=3*nn, bN=0, bE=nn;
+        for(int c=0;c<nn;c++){
+            int w=m[c];
+            if(c>=n){ int v=(r[bS+c-n]&0xFF)+1; r[bS+c]=(byte)((v-(v>>8))&-(((w>>2)&1)^1)); }
+            else r[bS+c]=0;
+            if(c>=1){ int v=(r[bW+c-1]&0xFF)+1; r[bW+c]=(byte)((v-(v>>8))&-(((w>>3)&1)^1)); }
+            else r[bW+c]=0;
+        }
+        for(int c=nn-1;c>=0;c--){
+            int w=m[c];
+            if(c<nn-n){ int v=(r[bN+c+n]&0xFF)+1; r[bN+c]=(byte)((v-(v>>8))&-((w&1)^1)); }
+            else r[bN+c]=0;
+            if(c<nn-1){ int v=(r[bE+c+1]&0xFF)+1; r[bE+c]=(byte)((v-(v>>8))&-(((w>>1)&1)^1)); }
+            else r[bE+c]=0;
+        }
+    }
+
+    private int run(int x,int y,int dir){ return runs[dir*mz*mz+y*mz+x]&0xFF; }
+
+    /** True if dist steps from (x, y) towards dir cross no wall. */
+    private boolean open(int x,int y,int dir,int dist){
+        for(;;){
+            int r=run(x,y,dir);
+            if(r>=dist) return true;
+            if(r<RUN_CAP) return false;
+            x+=DX[dir]*RUN_CAP; y+=DY[dir]*RUN_CAP; dist-=RUN_CAP;
+        }
+    }
+    // Depth-first backtracker from (1,1) with an explicit stack, so any
+    // size is safe. Each stack word packs the cell (20 bits), that cell's
+    // shuffled direction order (4×2 bits) and the next order slot (3 bits).
+    private static final int CELL_MASK = (1<<20)-1;
+
+    private void carve(Rng rnd) {
+        // The outer ring is never carved: pre-mark it so no bounds checks are needed
+        for (int i=0;i<mz;i++){
+            maze[i]=maze[(mz-1)*mz+i]=maze[i*mz]=maze[i*mz+mz-1]=(byte)(0xF|VISITED);
+        }
+        int[] step={mz,1,-mz,-1};
+        int[] stack=bfsQueue; int sp=0;
+        stack[sp++]=enter(mz+1,rnd);
+        while(sp>0){
+            int f=stack[sp-1], k=f>>>28;
+            if(k==4){ sp--; continue; }
+            stack[sp-1]=f+(1<<28);
+            int c=f&CELL_MASK, dd=(f>>>(20+2*k))&3, n=c+step[dd];
+            if ((maze[n]&VISITED)!=0) continue;
+            maze[c] &=~(1<<dd);
+            maze[n] &=~(1<<OPP[dd]);
+            stack[sp++]=enter(n,rnd);
+        }
+        for (int i=0;i<maze.length;i++) maze[i]&=0xF;
+    }
+
+    /** Mark cell c visited and return its stack word with a fresh direction order. */
+    // All 24 orders of the four directions, packed 2 bits each
+    private static final int[] PERM = new int[24];
+    static {
+        int k=0;
+        for(int a=0;a<4;a++) for(int b=0;b<4;b++) for(int c=0;c<4;c++){
+            int d=6-a-b-c;
+            if(a!=b&&a!=c&&b!=c) PERM[k++]=a|b<<2|c<<4|d<<6;
+        }
+    }
+    private int enter(int c, Rng rnd){
+        maze[c]|=VISITED;
+        return c | PERM[rnd.nextInt(24)]<<20;   // one draw per cell, uniform over the orders
     }
     private boolean wall(int x,int y,int dir){
-        if(x<0||x>=MZ||y<0||y>=MZ) return true;
-        return (maze[y*MZ+x]&(1<<dir))!=0;
+        if(x<0||x>=mz||y<0||y>=mz) return true;
+        return (maze[y*mz+x]&(1<<dir))!=0;
     }
     private boolean solid(int x,int y){
-        if(x<0||x>=MZ||y<0||y>=MZ) return true;
-        return maze[y*MZ+x]==0xF;
+        if(x<0||x>=mz||y<0||y>=mz) return true;
+        return maze[y*mz+x]==0xF;
     }
     private void spawnAI(int n){
+        Rng r=rng;
         for(int i=0;i<n;i++){
-            Enemy e=new Enemy();
-            Random r=new Random();
+            int e=allocEnemy(); if(e<0) return;
             for(int t=0;t<200;t++){
-                e.x=2+r.nextInt(MZ-4); e.y=2+r.nextInt(MZ-4);
-                if(!solid(e.x,e.y)&&Math.abs(e.x-px)+Math.abs(e.y-py)>3) break;
+                eX[e]=2+r.nextInt(mz-4); eY[e]=2+r.nextInt(mz-4);
+                if(!solid(eX[e],eY[e])&&Math.abs(eX[e]-px)+Math.abs(eY[e]-py)>3) break;
             }
-            e.dir=new Random().nextInt(4); aiEnemies.add(e);
+            eDir[e]=r.nextInt(4);
         }
     }
 
+    /** Maximum AI enemies per level (default 7, up to MAX_ENEMIES for stress runs). */
+    public void setAiCap(int n){ aiCap=Math.max(1,Math.min(MAX_ENEMIES,n)); }
+
+    public int getAiCap(){ return aiCap; }
+
+    // ── Pools ─────────────────────────────────────────────────
+
+    private int allocEnemy(){
+        int e;
+        if(eFreeN>0) e=eFree[--eFreeN];
+        else if(eHi<MAX_ENEMIES) e=eHi++;
+        else return -1;
+        eThink[e]=30; eFireCd[e]=80; eAlive[e]=true; eLive++;
+        return e;
+    }
+    private void killEnemy(int e){ eAlive[e]=false; eFree[eFreeN++]=e; eLive--; }
+    private void clearEnemies(){ eHi=0; eFreeN=0; eLive=0; }
+
+    private void spawnBullet(int cellX,int cellY,int dir,boolean fromPlayer){
+        int b;
+        if(bFreeN>0) b=bFree[--bFreeN];
+        else if(bHi<MAX_BULLETS) b=bHi++;
+        else return;
+        bX[b]=cellX*SUB+SUB/2; bY[b]=cellY*SUB+SUB/2;
+        bDir[b]=dir; bLife[b]=55; bFromPlayer[b]=fromPlayer; bAlive[b]=true; bLive++;
+    }
+    private void killBullet(int b){ bAlive[b]=false; bFree[bFreeN++]=b; bLive--; }
+    private void clearBullets(){ bHi=0; bFreeN=0; bLive=0; }
+
+    private void rebuildEnemyGrid(){
+        for(int i=0;i<eCellN;i++) cellHead[eCell[i]]=-1;
+        eCellN=0;
+        for(int e=0;e<eHi;e++){ if(!eAlive[e]) continue;
+            int c=eY[e]*mz+eX[e];
+            if(cellHead[c]<0) eCell[eCellN++]=c;
+            eNext[e]=cellHead[c]; cellHead[c]=e; }
+    }
+
+    /** Live enemy whose cell centre is within r (sub units) of (x, y) on both axes, or -1. */
+    private int enemyNear(int x,int y,int r){
+        int cx=x>>SUB_BITS, cy=y>>SUB_BITS;
+        for(int gy=Math.max(0,cy-1);gy<=Math.min(mz-1,cy+1);gy++)
+            for(int gx=Math.max(0,cx-1);gx<=Math.min(mz-1,cx+1);gx++)
+                for(int e=cellHead[gy*mz+gx];e>=0;e=eNext[e]){
+                    if(!eAlive[e]) continue;
+                    if(Math.abs(x-(eX[e]*SUB+SUB/2))<r&&Math.abs(y-(eY[e]*SUB+SUB/2))<r) return e;
+                }
+        return -1;
+    }
+
     // ─────────────────────────────────────────────────────────
     //  PLAY TICK
     // ─────────────────────────────────────────────────────────
@@ -273,6 +553,8 @@ public class MazeWarGame implements NetSession.EventListener {
         if(fireCd>0)fireCd--; if(hitFlash>0)hitFlash--;
         if(killFlash>0)killFlash--; if(msgT>0)msgT--;
         if(netHitFlash>0)netHitFlash--;
+        for(int h=peerShotHead;peerShotTail!=h;peerShotTail++)
+            spawnBullet(netX,netY,peerShots[peerShotTail&15],false);
 
         // Turn (edge)
         if(turnCd==0){
@@ -286,8 +568,7 @@ public class MazeWarGame implements NetSession.EventListener {
         }
         // Fire
         if(iFire&&!pFire&&fireCd==0){
-            Bullet b=new Bullet(); b.x=px+.5; b.y=py+.5;
-            b.dir=pdir; b.fromPlayer=true; bullets.add(b); fireCd=20;
+            spawnBullet(px,py,pdir,true); fireCd=20;
             if(multiMode&&net!=null) net.sendBullet(pdir);
         }
 
@@ -303,61 +584,62 @@ public class MazeWarGame implements NetSession.EventListener {
     }
 
     private void tickBullets(){
-        for(Bullet b:bullets){
-            if(!b.alive) continue;
-            b.life--; if(b.life<=0){b.alive=false;continue;}
-            b.x+=DX[b.dir]*0.2; b.y+=DY[b.dir]*0.2;
-            if(solid((int)b.x,(int)b.y)){b.alive=false;continue;}
-            if(b.fromPlayer){
+        if(bLive==0) return;
+        rebuildEnemyGrid();
+        for(int b=0;b<bHi;b++){
+            if(!bAlive[b]) continue;
+            if(--bLife[b]<=0){killBullet(b);continue;}
+            int x=bX[b]+=DX[bDir[b]]*BULLET_STEP, y=bY[b]+=DY[bDir[b]]*BULLET_STEP;
+            if(solid(x>>SUB_BITS,y>>SUB_BITS)){killBullet(b);continue;}
+            if(bFromPlayer[b]){
                 // Hit AI
-                for(Enemy e:aiEnemies){ if(!e.alive) continue;
-                    if(Math.abs(b.x-(e.x+.5))<0.6&&Math.abs(b.y-(e.y+.5))<0.6){
-                        e.alive=false;b.alive=false;score++;killFlash=12;
-                        msg="KILL";msgT=30;break;}}
+                int e=enemyNear(x,y,HIT_ENEMY);
+                if(e>=0){ killEnemy(e); killBullet(b); score++; killFlash=12;
+                    msg="KILL"; msgT=30; continue; }
                 // Hit net player
                 if(multiMode&&netAlive&&
-                   Math.abs(b.x-(netX+.5))<0.6&&Math.abs(b.y-(netY+.5))<0.6){
-                    b.alive=false; netAlive=false; netHitFlash=20; score++;
+                   Math.abs(x-(netX*SUB+SUB/2))<HIT_ENEMY&&Math.abs(y-(netY*SUB+SUB/2))<HIT_ENEMY){
+                    killBullet(b); netAlive=false; netHitFlash=20; score++;
                     if(net!=null) net.sendKill();
                     msg="YOU KILLED OPPONENT!"; msgT=50;
                 }
             } else {
                 // Hit local player
-                if(Math.abs(b.x-(px+.5))<0.55&&Math.abs(b.y-(py+.5))<0.55){
-                    b.alive=false; hp--; hitFlash=18;
+                if(Math.abs(x-(px*SUB+SUB/2))<HIT_PLAYER&&Math.abs(y-(py*SUB+SUB/2))<HIT_PLAYER){
+                    killBullet(b); hp--; hitFlash=18;
                     msg=(hp>0?"HIT! HP:"+hp:"YOU DIED"); msgT=45;
                     if(hp<=0) state=State.DEAD;
                 }
             }
         }
-        bullets.removeIf(b->!b.alive);
     }
 
     private void tickAI(){
-        for(Enemy e:aiEnemies){ if(!e.alive) continue;
-            e.think--; e.fireCd--;
-            if(e.think<=0){
-                e.think=15+(int)(Math.random()*25);
-                int dx=px-e.x,dy=py-e.y; int want=-1;
-                if(Math.abs(dx)>Math.abs(dy)) want=dx>0?1:3;
-                else if(dy!=0) want=dy>0?0:2;
-                if(Math.random()<0.6&&want>=0&&!wall(e.x,e.y,want)){
-                    e.dir=want;e.x+=DX[want];e.y+=DY[want];
+        int pc=py*mz+px;
+        if(pc!=distOrigin) buildDistField(pc);
+        for(int e=0;e<eHi;e++){ if(!eAlive[e]) continue;
+            eThink[e]--; eFireCd[e]--;
+            int ex=eX[e],ey=eY[e];
+            if(eThink[e]<=0){
+                eThink[e]=15+rng.nextInt(25);
+                int want=downhill(ex,ey);
+                if(rng.chance(0.6f)&&want>=0){
+                    eDir[e]=want;eX[e]=ex+DX[want];eY[e]=ey+DY[want];
                 } else {
-                    int[] ds={0,1,2,3};
-                    for(int i=3;i>0;i--){int j=(int)(Math.random()*(i+1));int t=ds[i];ds[i]=ds[j];ds[j]=t;}
-                    for(int dd:ds){if(!wall(e.x,e.y,dd)){e.dir=dd;e.x+=DX[dd];e.y+=DY[dd];break;}}
+                    int[] ds=dirScratch; ds[0]=0;ds[1]=1;ds[2]=2;ds[3]=3;
+                    for(int i=3;i>0;i--){int j=rng.nextInt(i+1);int t=ds[i];ds[i]=ds[j];ds[j]=t;}
+                    for(int dd:ds){if(!wall(ex,ey,dd)){eDir[e]=dd;eX[e]=ex+DX[dd];eY[e]=ey+DY[dd];break;}}
                 }
+                ex=eX[e]; ey=eY[e];
             }
-            if(e.fireCd<=0){
-                boolean sh=false;
-                if(e.dir==0&&e.x==px&&py>e.y) sh=los(e.x,e.y,px,py);
-                if(e.dir==2&&e.x==px&&py<e.y) sh=los(px,py,e.x,e.y);
-                if(e.dir==1&&e.y==py&&px>e.x) sh=los(e.x,e.y,px,py);
-                if(e.dir==3&&e.y==py&&px<e.x) sh=los(px,py,e.x,e.y);
-                if(sh){Bullet b=new Bullet();b.x=e.x+.5;b.y=e.y+.5;
-                    b.dir=e.dir;b.fromPlayer=false;bullets.add(b);
-                    e.fireCd=60+(int)(Math.random()*60);}
+            if(eFireCd[e]<=0){
+                boolean sh=false; int d=eDir[e];
+                if(d==0&&ex==px&&py>ey) sh=los(ex,ey,px,py);
+                if(d==2&&ex==px&&py<ey) sh=los(px,py,ex,ey);
+                if(d==1&&ey==py&&px>ex) sh=los(ex,ey,px,py);
+                if(d==3&&ey==py&&px<ex) sh=los(px,py,ex,ey);
+                if(sh){spawnBullet(ex,ey,d,false);
+                    eFireCd[e]=60+rng.nextInt(60);}
             }
         }
     }
@@ -369,16 +651,14 @@ public class MazeWarGame implements NetSession.EventListener {
     }
 
     private boolean los(int x1,int y1,int x2,int y2){
-        if(x1==x2){for(int y=y1;y<y2;y++) if(wall(x1,y,0)) return false;}
-        else{for(int x=x1;x<x2;x++) if(wall(x,y1,1)) return false;}
-        return true;
+        return x1==x2 ? open(x1,y1,0,y2-y1) : open(x1,y1,1,x2-x1);
     }
 
     private void checkWin(){
-        for(Enemy e:aiEnemies) if(e.alive) return;
+        if(eLive>0) return;
         level++; msg="LEVEL "+level+"!"; msgT=60;
-        genMaze(new Random().nextLong()); px=1;py=1;pdir=0;
-        bullets.clear(); aiEnemies.clear(); spawnAI(Math.min(level+1,7));
+        mazeSeed=rng.nextLong(); genMaze(mazeSeed); px=1;py=1;pdir=0;
+        clearBullets(); clearEnemies(); spawnAI(Math.min(level+1,aiCap));
     }
 
     private void tickDead(){
@@ -390,60 +670,54 @@ public class MazeWarGame implements NetSession.EventListener {
     //  DRAW
     // ─────────────────────────────────────────────────────────
     private void drawPlay(){
-        vl(VX0,VY0,VX1,VY0,.5f);vl(VX1,VY0,VX1,VY1,.5f);
-        vl(VX1,VY1,VX0,VY1,.5f);vl(VX0,VY1,VX0,VY0,.5f);
+        if(viewFrame.begin(M)){
+            vl(VX0,VY0,VX1,VY0,.5f);vl(VX1,VY0,VX1,VY1,.5f);
+            vl(VX1,VY1,VX0,VY1,.5f);vl(VX0,VY1,VX0,VY0,.5f);
+            // Vanishing lines
+            vl(VX0,VY0,LT[0],TP[0],.35f);vl(VX1,VY0,RT[0],TP[0],.35f);
+            vl(VX0,VY1,LT[0],BT[0],.35f);vl(VX1,VY1,RT[0],BT[0],.35f);
+            // Crosshair
+            vl(VCX-12,VCY,VCX-4,VCY,.6f);vl(VCX+4,VCY,VCX+12,VCY,.6f);
+            vl(VCX,VCY-12,VCX,VCY-4,.6f);vl(VCX,VCY+4,VCX,VCY+12,.6f);
+            viewFrame.end(M);
+        }
+        M.dlLayer(viewFrame);
         if(hitFlash>0){float f=hitFlash/18f;
             vl(VX0,VY0,VX1,VY0,f);vl(VX1,VY0,VX1,VY1,f);
             vl(VX1,VY1,VX0,VY1,f);vl(VX0,VY1,VX0,VY0,f);}
-        draw3D(); drawEnemiesInView(); drawHUD();
+        draw3D(); drawEnemiesInView(); drawHUD(); drawMinimap();
         if(msgT>0){float b=Math.min(1f,msgT/20f); txt(msg,VCX-msg.length()*11,VCY-60,13,b);}
         // Net indicator
         if(multiMode){ txt(net!=null&&net.isConnected()?"NET OK":"NET...", VX0+8,VY0-22,7,0.4f);}
     }
 
     private void draw3D(){
-        final int MAX=10;
-        int depth=0; int wx=px,wy=py;
-        for(int d=1;d<=MAX;d++){
-            if(wall(wx,wy,pdir)){depth=d-1;break;}
-            wx+=DX[pdir];wy+=DY[pdir];
-            if(solid(wx,wy)){depth=d-1;break;}
-            depth=d;
-        }
-        depth=Math.max(0,depth);
-
-        int[] lt=new int[MAX+2],rt=new int[MAX+2],tp=new int[MAX+2],bt=new int[MAX+2];
-        for(int d=0;d<=depth+1;d++){
-            float sc=1.4f/(d+1f);
-            lt[d]=cx(VCX-(int)(VW/2f*sc)); rt[d]=cx(VCX+(int)(VW/2f*sc));
-            tp[d]=cy(VCY-(int)(VH/2f*sc)); bt[d]=cy(VCY+(int)(VH/2f*sc));
-        }
-
-        int cx2=px,cy2=py;
-        for(int d=0;d<=depth;d++){
-            float bright=Math.max(0.2f,1f-d*0.1f);
-            boolean hl=!wall(cx2,cy2,(pdir+3)%4);
-            boolean hr=!wall(cx2,cy2,(pdir+1)%4);
-            boolean hf=!wall(cx2,cy2,pdir)&&d<depth;
+        int depth=Math.min(VIEW_MAX,run(px,py,pdir));
+        final int[] lt=LT,rt=RT,tp=TP,bt=BT;
+
+        // Side openings come from the perpendicular run planes (open = run > 0);
+        // the corridor is open straight ahead up to depth by construction.
+        final byte[] r=runs;
+        final int nn=mz*mz, step=DY[pdir]*mz+DX[pdir];
+        final int lp=((pdir+3)&3)*nn, rp=((pdir+1)&3)*nn;
+        int c=py*mz+px;
+        for(int d=0;d<=depth;d++,c+=step){
+            float bright=DEPTH_B[d];
+            boolean hl=r[lp+c]!=0;
+            boolean hr=r[rp+c]!=0;
+            boolean hf=d<depth;
             if(!hl){vl(lt[d],tp[d],lt[d+1],tp[d+1],bright*.8f);vl(lt[d],bt[d],lt[d+1],bt[d+1],bright*.8f);vl(lt[d+1],tp[d+1],lt[d+1],bt[d+1],bright*.6f);}
             else{vl(lt[d],tp[d],lt[d],bt[d],bright*.5f);}
             if(!hr){vl(rt[d],tp[d],rt[d+1],tp[d+1],bright*.8f);vl(rt[d],bt[d],rt[d+1],bt[d+1],bright*.8f);vl(rt[d+1],tp[d+1],rt[d+1],bt[d+1],bright*.6f);}
             else{vl(rt[d],tp[d],rt[d],bt[d],bright*.5f);}
             if(!hf){vl(lt[d+1],tp[d+1],rt[d+1],tp[d+1],bright);vl(lt[d+1],bt[d+1],rt[d+1],bt[d+1],bright);
                     vl(lt[d+1],tp[d+1],lt[d+1],bt[d+1],bright*.8f);vl(rt[d+1],tp[d+1],rt[d+1],bt[d+1],bright*.8f);break;}
-            cx2+=DX[pdir]; cy2+=DY[pdir];
         }
-        // Vanishing lines
-        vl(VX0,VY0,lt[0],tp[0],.35f);vl(VX1,VY0,rt[0],tp[0],.35f);
-        vl(VX0,VY1,lt[0],bt[0],.35f);vl(VX1,VY1,rt[0],bt[0],.35f);
-        // Crosshair
-        vl(VCX-12,VCY,VCX-4,VCY,.6f);vl(VCX+4,VCY,VCX+12,VCY,.6f);
-        vl(VCX,VCY-12,VCX,VCY-4,.6f);vl(VCX,VCY+4,VCX,VCY+12,.6f);
     }
 
     private void drawEnemiesInView(){
         // AI enemies
-        for(Enemy e:aiEnemies) if(e.alive) drawEntityIfVisible(e.x,e.y,false);
+        for(int e=0;e<eHi;e++) if(eAlive[e]) drawEntityIfVisible(eX[e],eY[e],false);
         // Network player
         if(multiMode&&netAlive) drawEntityIfVisible(netX,netY,true);
     }
@@ -456,16 +730,11 @@ public class MazeWarGame implements NetSession.EventListener {
         if(pdir==3&&ey==py&&ex<px) relDir=3;
         if(relDir!=pdir) return;
         int dist=(pdir==0||pdir==2)?Math.abs(ey-py):Math.abs(ex-px);
-        if(dist<1||dist>8) return;
-        for(int d=0;d<dist;d++){
-            int cx2=px+DX[pdir]*d,cy2=py+DY[pdir]*d;
-            if(wall(cx2,cy2,pdir)) return;
-        }
-        float sc=1.4f/(dist+.5f);
-        int sz=Math.max(8,Math.min((int)(VH*.25f*sc),120));
-        float b=Math.max(.3f,.9f-dist*.08f);
+        if(dist<1||dist>SEE_MAX) return;
+        if((run(px,py,pdir))<dist) return;
+        float b=EYE_B[dist];
         if(isNet&&netHitFlash>0) b=1.0f; // flash on hit
-        drawEye(VCX,VCY,sz,b);
+        drawEye(VCX,VCY,EYE_SZ[dist],b);
     }
 
     private void drawEye(int cx,int cy,int sz,float b){
@@ -480,17 +749,68 @@ public class MazeWarGame implements NetSession.EventListener {
     private void drawHUD(){
         for(int i=0;i<3;i++){int hx=VX0+20+i*28,hy=VY1+25;
             if(i<hp) circle(hx,hy,9,9,8,.9f); else circle(hx,hy,9,9,6,.2f);}
-        txt(String.format("%04d",score),VX1-120,VY1+18,9,.7f);
-        txt(new String[]{"N","E","S","W"}[pdir],VX1+15,VY1+18,10,.6f);
-        txt("LV"+level,VCX-32,VY0-22,9,.35f);
+        num(score,4,VX1-120,VY1+18,9,.7f);
+        VectorFont.glyph(M,"NESW".charAt(pdir),VX1+15,VY1+18,10,.6f);
+        num(level,1,txt("LV",VCX-32,VY0-22,9,.35f),VY0-22,9,.35f);
         if(fireCd>0) vl(VCX-40,VY1+52,VCX-40+(int)(fireCd/20f*80),VY1+52,.4f);
         // Net player score
-        if(multiMode){ txt("OPP:"+String.format("%04d",netScore),VX0+8,VY1+18,9,.5f); }
+        if(multiMode){ num(netScore,4,txt("OPP:",VX0+8,VY1+18,9,.5f),VY1+18,9,.5f); }
+    }
+
+    private void drawMinimap(){
+        int ch=(py/CHUNK)*chunksX+px/CHUNK;
+        if(ch!=miniShown){ miniLayer.invalidate(); miniShown=ch; }
+        if(miniLayer.begin(M)){
+            int[] seg=miniChunks[ch];
+            if(seg==null) seg=miniChunks[ch]=buildMiniChunk(px/CHUNK*CHUNK,py/CHUNK*CHUNK);
+            M.dlSegments(seg,0,seg.length,MINI_X,MINI_Y,.3f);
+            miniLayer.end(M);
+        }
+        M.dlLayer(miniLayer);
+        // Player: short stroke from the cell centre towards the facing side
+        int mx=MINI_X+(px%CHUNK)*MINI_CELL+MINI_CELL/2, my=MINI_Y+(py%CHUNK)*MINI_CELL+MINI_CELL/2;
+        vl(mx,my,mx+DX[pdir]*(MINI_CELL/2),my+DY[pdir]*(MINI_CELL/2),.9f);
+        M.dlPoint(mx,my,.9f);
+    }
+
+    /** Wall segments of the chunk at cell (x0, y0), merged into runs, relative to the minimap origin. */
+    private int[] buildMiniChunk(int x0,int y0){
+        int w=Math.min(CHUNK,mz-x0), h=Math.min(CHUNK,mz-y0), o=0;
+        int[] s=miniSeg;
+        for(int j=0;j<=h;j++){                    // horizontal walls below row j
+            int run=-1;
+            for(int i=0;i<=w;i++){
+                boolean on=i<w&&edge(x0+i,y0+j,2);
+                if(on&&run<0) run=i;
+                if(!on&&run>=0){ o=seg(s,o,run,j,i,j); run=-1; }
+            }
+        }
+        for(int i=0;i<=w;i++){                    // vertical walls left of column i
+            int run=-1;
+            for(int j=0;j<=h;j++){
+                boolean on=j<h&&edge(x0+i,y0+j,3);
+                if(on&&run<0) run=j;
+                if(!on&&run>=0){ o=seg(s,o,i,run,i,j); run=-1; }
+            }
+        }
+        return Arrays.copyOf(s,o);
+    }
+
+    /** Wall on the south (dir 2) or west (dir 3) side of (x, y), unless rock on both sides. */
+    private boolean edge(int x,int y,int dir){
+        int nx=x+DX[dir], ny=y+DY[dir];
+        if(solid(x,y)&&solid(nx,ny)) return false;
+        return x<mz&&y<mz ? wall(x,y,dir) : wall(nx,ny,OPP[dir]);
+    }
+
+    private static int seg(int[] s,int o,int x1,int y1,int x2,int y2){
+        s[o++]=x1*MINI_CELL; s[o++]=y1*MINI_CELL; s[o++]=x2*MINI_CELL; s[o++]=y2*MINI_CELL;
+        return o;
     }
 
     private void drawDead(){
         txt("GAME OVER",VCX-190,VCY+80,18,.9f);
-        txt("SCORE "+score,VCX-160,VCY+10,13,.7f);
+        num(score,1,txt("SCORE ",VCX-160,VCY+10,13,.7f),VCY+10,13,.7f);
         if((frame/20)%2==0) txt("PRESS ANY BUTTON",VCX-215,VCY-70,11,.85f);
     }
 
@@ -498,47 +818,14 @@ public class MazeWarGame implements NetSession.EventListener {
     //  DRAW HELPERS
     // ─────────────────────────────────────────────────────────
     private void vl(int x1,int y1,int x2,int y2,float b){M.dlLine(x1,y1,x2,y2,b);}
-    private int cx(int x){return Math.max(VX0,Math.min(VX1,x));}
-    private int cy(int y){return Math.max(VY0,Math.min(VY1,y));}
+    private static int clampX(int x){return Math.max(VX0,Math.min(VX1,x));}
+    private static int clampY(int y){return Math.max(VY0,Math.min(VY1,y));}
 
     private void circle(int cx,int cy,int rx,int ry,int segs,float b){
-        int ppx=cx+rx,ppy=cy;
-        for(int i=1;i<=segs;i++){
-            double a=i/(double)segs*2*Math.PI;
-            int nx=cx+(int)(Math.cos(a)*rx),ny=cy+(int)(Math.sin(a)*ry);
-            vl(ppx,ppy,nx,ny,b);ppx=nx;ppy=ny;
-        }
+        FixedTrig.ellipse(M,cx,cy,rx,ry,segs,b);   // tessellation cached per (rx, ry, segs)
     }
 
-    // ── Vector font ───────────────────────────────────────────
-    private static final float[][][] F={
-        {{0,0,2,4},{2,4,4,0},{1,2,3,2}},{{0,0,0,4},{0,4,2,4},{0,2,2,2},{0,0,2,0},{2,4,3,3},{3,3,2,2},{2,2,3,1},{3,1,2,0}},
-        {{3,4,0,4},{0,4,0,0},{0,0,3,0}},{{0,0,0,4},{0,4,2,4},{2,4,4,2},{4,2,2,0},{2,0,0,0}},
-        {{0,0,0,4},{0,4,4,4},{0,2,3,2},{0,0,4,0}},{{0,0,0,4},{0,4,4,4},{0,2,3,2}},
-        {{3,4,0,4},{0,4,0,0},{0,0,4,0},{4,0,4,2},{4,2,2,2}},{{0,0,0,4},{4,0,4,4},{0,2,4,2}},
-        {{1,0,3,0},{1,4,3,4},{2,0,2,4}},{{1,4,3,4},{3,4,3,0},{3,0,0,0}},
-        {{0,0,0,4},{0,2,4,4},{0,2,4,0}},{{0,4,0,0},{0,0,4,0}},
-        {{0,0,0,4},{0,4,2,2},{2,2,4,4},{4,4,4,0}},{{0,0,0,4},{0,4,4,0},{4,0,4,4}},
-        {{0,0,4,0},{4,0,4,4},{4,4,0,4},{0,4,0,0}},{{0,0,0,4},{0,4,3,4},{3,4,4,3},{4,3,3,2},{3,2,0,2}},
-        {{0,0,4,0},{4,0,4,4},{4,4,0,4},{0,4,0,0},{2,2,4,0}},{{0,0,0,4},{0,4,3,4},{3,4,4,3},{4,3,3,2},{3,2,0,2},{2,2,4,0}},
-        {{4,4,0,4},{0,4,0,2},{0,2,4,2},{4,2,4,0},{4,0,0,0}},{{0,4,4,4},{2,4,2,0}},
-        {{0,4,0,0},{0,0,4,0},{4,0,4,4}},{{0,4,2,0},{2,0,4,4}},
-        {{0,4,1,0},{1,0,2,2},{2,2,3,0},{3,0,4,4}},{{0,0,4,4},{4,0,0,4}},
-        {{0,4,2,2},{4,4,2,2},{2,2,2,0}},{{0,4,4,4},{4,4,0,0},{0,0,4,0}},
-        {{0,0,4,0},{4,0,4,4},{4,4,0,4},{0,4,0,0},{0,0,4,4}},{{1,4,2,4},{2,4,2,0},{1,0,3,0}},
-        {{0,4,4,4},{4,4,4,3},{4,3,0,1},{0,1,0,0},{0,0,4,0}},{{0,4,4,4},{4,4,4,0},{0,0,4,0},{0,2,4,2}},
-        {{0,4,0,2},{0,2,4,2},{4,4,4,0}},{{4,4,0,4},{0,4,0,2},{0,2,4,2},{4,2,4,0},{4,0,0,0}},
-        {{4,4,0,4},{0,4,0,0},{0,0,4,0},{4,0,4,2},{4,2,0,2}},{{0,4,4,4},{4,4,2,0}},
-        {{0,0,4,0},{4,0,4,4},{4,4,0,4},{0,4,0,0},{0,2,4,2}},{{4,0,4,4},{4,4,0,4},{0,4,0,2},{0,2,4,2}},
-        {}
-    };
-    private static final String CH="ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 ";
-    private void ch(char c,int ox,int oy,float sc,float b){
-        int i=CH.indexOf(Character.toUpperCase(c));
-        if(i<0||i>=F.length) return;
-        for(float[] s:F[i]) vl(ox+(int)(s[0]*sc),oy+(int)(s[1]*sc),ox+(int)(s[2]*sc),oy+(int)(s[3]*sc),b);
-    }
-    private void txt(String s,int ox,int oy,float sc,float b){
-        int x=ox; for(char c:s.toCharArray()){ch(c,x,oy,sc,b);x+=(int)(sc*5.5f);}
-    }
+    // ── Vector font (shared, see VectorFont) ─────────────────
+    private int txt(String s,int ox,int oy,float sc,float b){ return VectorFont.text(M,s,ox,oy,sc,b); }
+    private int num(int v,int digits,int ox,int oy,float sc,float b){ return VectorFont.number(M,v,digits,ox,oy,sc,b); }
 }
@@ -0,0 +1,140 @@
+package com.imlac.pds1;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Per-frame timing instrumentation.
+ *
+ * Each named section keeps its own RollingHistogram (pre-allocated ring
+ * of the last WINDOW samples), so recording is allocation-free and each
+ * section is written by exactly one thread:
+ *   DEMO, DP, PUBLISH       — emulation thread (EmuLoop / Demos)
+ *   BUILD, UPLOAD, DRAW, FRAME — GL thread (CrtView)
+ * The UI thread reads them for the overlay and CSV export; readings may
+ * be slightly torn, which is fine for statistics.
+ */
+public class PerfStats {
+
+    public static final int DEMO    = 0;   // EmuLoop: Demos.step() ticks + draw(alpha)
+    public static final int DP      = 1;   // DP replay (USER_ASM)
+    public static final int PUBLISH = 2;   // display list snapshot + hash
+    public static final int BUILD   = 3;   // CrtView.buildBuffers
+    public static final int UPLOAD  = 4;   // glBufferSubData
+    public static final int DRAW    = 5;   // GL draw calls (CPU side)
+    public static final int FRAME   = 6;   // whole onDrawFrame
+    public static final int N_SECTIONS = 7;
+
+    private static final String[] NAMES = {
+        "demo", "dp", "publish", "build", "upload", "draw", "frame"
+    };
+
+    private static final int WINDOW = 240;
+
+    private final RollingHistogram[] sections = new RollingHistogram[N_SECTIONS];
+    // Vertex records uploaded per frame, 256-record buckets up to 64K
+    private final RollingHistogram   uploads  = new RollingHistogram(WINDOW, 256, 256);
+
+    private volatile int  vectors  = 0;
+    private volatile int  dropped  = 0;   // duplicates / culled before upload
+    private volatile int  uploaded = 0;
+    private volatile long mips     = 0;   // MP instructions per second
+    private long mpLastCycles = 0, mpLastNs = 0;
+
+    private final StringBuilder sb = new StringBuilder(512);
+
+    public PerfStats() {
+        // Section times: 50 µs buckets up to 25 ms
+        for (int i = 0; i < N_SECTIONS; i++)
+            sections[i] = new RollingHistogram(WINDOW, 50, 500);
+    }
+
+    // ── Recording ─────────────────────────────────────────────
+
+    /** Record the time since startNs (from System.nanoTime()) for a section. */
+    public void record(int section, long startNs) {
+        sections[section].add((int)((System.nanoTime() - startNs) / 1000L));
+    }
+
+    public void setVectors(int n, int drop) { vectors = n; dropped = drop; }
+
+    /** Vertex records uploaded this frame: one per vector when instanced, four on ES 2.0. */
+    public void addUploaded(int verts) {
+        uploaded = verts;
+        uploads.add(verts);
+    }
+
+    /** Update MP instructions per second from Machine.cycles; call periodically. */
+    public void sampleMp(long cycles) {
+        long now = System.nanoTime();
+        if (mpLastNs != 0 && cycles >= mpLastCycles && now > mpLastNs)
+            mips = (cycles - mpLastCycles) * 1_000_000_000L / (now - mpLastNs);
+        else if (cycles < mpLastCycles)
+            mips = 0;   // machine was reset
+        mpLastCycles = cycles;
+        mpLastNs = now;
+    }
+
+    public RollingHistogram section(int s) { return sections[s]; }
+    public int  getVectors()  { return vectors; }
+    public int  getDropped()  { return dropped; }
+    public int  getUploaded() { return uploaded; }
+    public long getMpIps()    { return mips; }
+
+    // ── Overlay ───────────────────────────────────────────────
+
+    /** Multi-line summary for the on-screen overlay (UI thread). */
+    public String overlayText() {
+        sb.setLength(0);
+        sb.append("SECTION  p50   p95   p99 ms\n");
+        for (int i = 0; i < N_SECTIONS; i++) {
+            RollingHistogram h = sections[i];
+            if (h.count() == 0) continue;
+            sb.append(String.format(Locale.US, "%-7s %5.2f %5.2f %5.2f\n", NAMES[i],
+                h.percentile(0.50f) / 1000f, h.percentile(0.95f) / 1000f,
+                h.percentile(0.99f) / 1000f));
+        }
+        sb.append("vec ").append(vectors).append(" -").append(dropped)
+          .append("  upl ").append(uploaded)
+          .append("  mp ").append(mips / 1000).append("k/s");
+        return sb.toString();
+    }
+
+    // ── CSV export ────────────────────────────────────────────
+
+    /**
+     * Write a summary block and the raw sample windows to dir/perf-<time>.csv.
+     * Returns the written file.
+     */
+    public File writeCsv(File dir, String device) throws IOException {
+        File f = new File(dir, "perf-" + System.currentTimeMillis() + ".csv");
+        int[] buf = new int[WINDOW];
+        FileWriter w = new FileWriter(f);
+        try {
+            w.write("# device," + device + "\n");
+            w.write("# vectors," + vectors + ",dropped," + dropped + ",uploaded_verts," + uploaded + ",mp_ips," + mips + "\n");
+            w.write("section,count,mean_us,p50_us,p95_us,p99_us\n");
+            for (int i = 0; i < N_SECTIONS; i++) writeSummary(w, NAMES[i], sections[i]);
+            writeSummary(w, "upload_verts", uploads);
+
+            w.write("\nsection,index,value\n");
+            for (int i = 0; i < N_SECTIONS; i++) writeSamples(w, NAMES[i], sections[i], buf);
+            writeSamples(w, "upload_verts", uploads, buf);
+        } finally {
+            w.close();
+        }
+        return f;
+    }
+
+    private static void writeSummary(FileWriter w, String name, RollingHistogram h) throws IOException {
+        w.write(name + "," + h.count() + "," + h.mean() + ","
+              + h.percentile(0.50f) + "," + h.percentile(0.95f) + "," + h.percentile(0.99f) + "\n");
+    }
+
+    private static void writeSamples(FileWriter w, String name, RollingHistogram h, int[] buf) throws IOException {
+        int n = h.copySamples(buf);
+        for (int i = 0; i < n; i++) w.write(name + "," + i + "," + buf[i] + "\n");
+    }
+}
@@ -4,36 +4,35 @@ package com.imlac.pds1;
  * Pong for Imlac PDS-1 emulator.
  *
  * Runs directly on the emulated hardware:
- *   - Writes a DP display program into machine memory
- *   - Updates it each frame (self-modifying code, classic Imlac technique)
- *   - MP thread handles game physics
+ *   - Builds a DP display program in machine memory (DisplayProgram)
+ *   - Patches its named slots each tick (self-modifying code, classic
+ *     Imlac technique); only segments whose words changed are re-run
+ *   - Physics runs in Java; the MP is halted
  *
  * Controls: W/S = left paddle,  I/K = right paddle
  */
 public class PongGame {
 
     // ── Memory layout ─────────────────────────────────────────
-    private static final int DP_BASE   = 0x080; // Display program start
-    private static final int MP_BASE   = 0x040; // MP variables base
+    // Variables and display program live in a reserved block at the top of
+    // memory, clear of the usual MP (0x050) and DP (0x100) load addresses.
+    // The words underneath are saved by init() and put back by stop().
+    private static final int MP_BASE   = 0xDF0; // MP variables base
+    private static final int DP_BASE   = 0xE00; // Display program start
+    private static final int RESERVED  = Machine.MEM_SIZE - MP_BASE;
 
     // Variable addresses in machine RAM
-    private static final int A_BALL_X  = 0x040;
-    private static final int A_BALL_Y  = 0x041;
-    private static final int A_BALL_DX = 0x042;
-    private static final int A_BALL_DY = 0x043;
-    private static final int A_P1_Y    = 0x044;
-    private static final int A_P2_Y    = 0x045;
-    private static final int A_SC1     = 0x046;
-    private static final int A_SC2     = 0x047;
-
-    // DP instruction offsets (patched each frame by updateDP())
-    // relative to DP_BASE
-    private static final int DP_OFF_BX   = 0;  // DLXA for ball
-    private static final int DP_OFF_BY   = 1;  // DLYA for ball
-    private static final int DP_OFF_P1Y  = 5;  // DLYA for P1 paddle
-    private static final int DP_OFF_P2Y  = 12; // DLYA for P2 paddle
-    private static final int DP_OFF_SC1  = 19; // score display patch
-    private static final int DP_OFF_SC2  = 25;
+    private static final int A_BALL_X  = MP_BASE;
+    private static final int A_BALL_Y  = MP_BASE + 1;
+    private static final int A_BALL_DX = MP_BASE + 2;
+    private static final int A_BALL_DY = MP_BASE + 3;
+    private static final int A_P1_Y    = MP_BASE + 4;
+    private static final int A_P2_Y    = MP_BASE + 5;
+    private static final int A_SC1     = MP_BASE + 6;
+    private static final int A_SC2     = MP_BASE + 7;
+
+    private final int[] saved = new int[RESERVED];   // memory under the block
+    private final int[] image = new int[RESERVED];   // block as of the last tick
 
     // Game constants (in screen coords 0..1023)
     private static final int SCREEN     = 1023;
@@ -61,7 +60,10 @@ public class PongGame {
 
     // ── Public API ────────────────────────────────────────────
 
+    /** (Re)build the program and start a new game. */
     public void init() {
+        if (!initialized) System.arraycopy(machine.mem, MP_BASE, saved, 0, RESERVED);
+
         // Reset game state
         sc1 = sc2 = 0;
         p1Y = p2Y = 512;
@@ -74,7 +76,7 @@ public class PongGame {
         // Start DP
         machine.dp_halt    = false;
         machine.dp_enabled = true;
-        machine.dp_pc      = DP_BASE;
+        machine.dp_pc      = dp.entry();
 
         // Halt MP (we drive physics from Java, not emulated MP)
         machine.mp_halt = true;
@@ -82,6 +84,7 @@ public class PongGame {
 
         syncToMachine();
         updateDP();
+        System.arraycopy(machine.mem, MP_BASE, image, 0, RESERVED);
     }
 
     /** Call ~30 times/sec from game loop */
@@ -94,10 +97,26 @@ public class PongGame {
         clampPaddles();
         syncToMachine();
         updateDP();
+        System.arraycopy(machine.mem, MP_BASE, image, 0, RESERVED);
+    }
 
-        // Restart DP each frame so it redraws
-        machine.dp_halt = false;
-        machine.dp_pc   = DP_BASE;
+    /**
+     * Leave the game: the saved memory is put back, unless something else
+     * (a loader, the assembler, MP code) has written the block since the
+     * last tick — then that newer content is left alone.
+     */
+    public void stop() {
+        if (!initialized) return;
+        initialized = false;
+        int[] m = machine.mem;
+        for (int i = 0; i < RESERVED; i++)
+            if (m[MP_BASE + i] != image[i]) return;
+        System.arraycopy(saved, 0, m, MP_BASE, RESERVED);
+    }
+
+    /** Fill the display list: re-runs only the program segments patched since the last call. */
+    public void draw() {
+        if (initialized) dp.draw();
     }
 
     public int getScore1() { return sc1; }
@@ -197,155 +216,74 @@ public class PongGame {
 
     // ── DP display program ────────────────────────────────────
     //
-    // Format: each word is a DP instruction
-    //   DLXA val = 0x1000 | (val & 0x3FF)   load X register
-    //   DLYA val = 0x2000 | (val & 0x3FF)   load Y register
-    //   DSVH     = 0x3xxx                   short vector (dx5,dy5)
-    //   DLVH     = 0x4xxx                   long vector  (dx6*8, dy6*8)
-    //   DPTS     = 0x7800                   draw point
-    //   DHLT     = 0x8000                   halt DP
-    //   DJMS addr= 0x6xxx                   jump to subroutine
-    //   DRJM     = 0xB000                   return
-    //
-    // DSVH encoding: [15:12]=3, [11]=sign_dx, [10:6]=|dx|, [5]=sign_dy, [4:0]=|dy|
-    // DLVH encoding: [15:12]=4, [11]=sign_dx, [10:6]=|dx|, [5]=sign_dy, [4:0]=|dy|
-    //   actual delta = field * 8
-    //
-    // Score subroutine: draws N dots horizontally (N = score, max 9)
+    // Built with DisplayProgram: a main list of DJMS calls into one
+    // subroutine per segment. Court, scores and paddles are retained
+    // segments (paddles only change while a key is held); the ball is
+    // live. Score dots are ten fixed
+    // subroutines (0..9 dots), picked by patching a DJMS target.
+
+    private static final int MAX_DOTS = 9;
+
+    private DisplayProgram dp;
+    private int slBallX, slBallY, slBallX2, slP1Y, slP2Y, slSc1, slSc2;
+    private final int[] dotsSub = new int[MAX_DOTS + 1];
 
     private void writeDisplayProgram() {
-        int[] m = machine.mem;
-        int p = DP_BASE;
-
-        // ── Ball (2 words, patched each frame) ──
-        // DP_OFF_BX = 0
-        m[p++] = dlxa(ballX);   // DP_BASE+0: DLXA ball_x
-        m[p++] = dlya(ballY);   // DP_BASE+1: DLYA ball_y
-        m[p++] = 0x7800;        // DPTS — draw ball point
-        // extra DPTS for bigger ball
-        m[p++] = dlxa(ballX+2);
-        m[p++] = 0x7800;
-
-        // ── Left paddle P1 at x=P1_X ──
-        // DP_OFF_P1Y = 5
-        m[p++] = dlxa(P1_X);        // DP_BASE+5
-        m[p++] = dlya(p1Y - PADDLE_H); // DP_BASE+6: bottom of paddle, patched
-        // Draw paddle as 8 short vectors upward, each +15 pixels
-        // DSVH dx=0, dy=+15: 0x3000 | 0 | 15 = 0x300F
-        for (int i = 0; i < 7; i++) m[p++] = dsvh(0, 15);
-
-        // ── Right paddle P2 at x=P2_X ──
-        // DP_OFF_P2Y = 5 + 1 + 1 + 7 = 14  -- let's track
-        m[p++] = dlxa(P2_X);        // paddle X (constant)
-        m[p++] = dlya(p2Y - PADDLE_H); // patched each frame
-        for (int i = 0; i < 7; i++) m[p++] = dsvh(0, 15);
-
-        // ── Top wall ──
-        m[p++] = dlxa(40);
-        m[p++] = dlya(TOP_WALL);
-        // Draw 12 segments of 80 pixels each = 960 pixels total
-        for (int i = 0; i < 12; i++) m[p++] = dlvh(10, 0); // 10*8=80 right
-
-        // ── Bottom wall ──
-        m[p++] = dlxa(40);
-        m[p++] = dlya(BOT_WALL);
-        for (int i = 0; i < 12; i++) m[p++] = dlvh(10, 0);
-
-        // ── Center dashed line ──
-        m[p++] = dlxa(510);
-        m[p++] = dlya(TOP_WALL + 20);
-        for (int i = 0; i < 9; i++) {
-            m[p++] = dlvh(0, 7);   // segment +56 up
-            m[p++] = dlvh(0, 3);   // gap +24 up (no draw — but DLVH always draws!)
-            // For dashes: alternate intensity
-            // Simpler: just draw shorter segments with gaps via DVSF or skip
-            // Actually use DLYA to jump = skip gap
-        }
+        DisplayProgram d = dp = new DisplayProgram(machine, DP_BASE);
 
-        // ── Score P1 (left side dots) ──
-        int sc1SubAddr = p;
-        m[p++] = dlxa(200);
-        m[p++] = dlya(940);
-        for (int i = 0; i < 9; i++) {
-            // Each dot: DPTS, then move right 30px
-            // Will be patched: dots beyond score are replaced with NOP (DJMP to skip)
-            m[p++] = 0x7800; // DPTS
-            m[p++] = dlvh(4, 0); // move right 32px
+        // Score dots: n points 32 units apart from the current beam position
+        for (int n = 0; n <= MAX_DOTS; n++) {
+            dotsSub[n] = d.subroutine();
+            for (int i = 0; i < n; i++) { d.point(); d.longVec(4, 0); }
         }
-        m[p++] = 0x8000; // DHLT guard (replaced with DRJM when called as sub)
-
-        // ── Score P2 (right side dots) ──
-        int sc2SubAddr = p;
-        m[p++] = dlxa(600);
-        m[p++] = dlya(940);
-        for (int i = 0; i < 9; i++) {
-            m[p++] = 0x7800;
-            m[p++] = dlvh(4, 0);
+
+        // Court: top and bottom walls, dashed centre line
+        d.segment(true);
+        d.moveTo(40, TOP_WALL);
+        for (int i = 0; i < 12; i++) d.longVec(10, 0);   // 12 × 80 units
+        d.moveTo(40, BOT_WALL);
+        for (int i = 0; i < 12; i++) d.longVec(10, 0);
+        for (int y = TOP_WALL + 20; y + 56 <= BOT_WALL - 20; y += 80) {
+            d.moveTo(510, y);
+            d.longVec(0, 7);                               // 56-unit dash
         }
 
-        // ── Main DHLT ──
-        m[p] = 0x8000; // DHLT
-
-        // Store offsets for patching
-        dpOffBX  = DP_BASE + 0;
-        dpOffBY  = DP_BASE + 1;
-        dpOffBX2 = DP_BASE + 3;
-        dpOffP1Y = DP_BASE + 6;
-        dpOffP2Y = DP_BASE + 6 + 9; // after P1: 1(dlxa)+1(dlya)+7(dsvh) = 9
-        dpOffSc1 = sc1SubAddr + 2;   // first DPTS of sc1
-        dpOffSc2 = sc2SubAddr + 2;   // first DPTS of sc2
-        dpEnd    = p;
+        // Paddles (Y slot = bottom end)
+        d.segment(true);
+        d.emit(DisplayProgram.dlxa(P1_X));
+        slP1Y = d.posY(p1Y - PADDLE_H);
+        d.longVec(0, 2 * PADDLE_H / 8);
+        d.segment(true);
+        d.emit(DisplayProgram.dlxa(P2_X));
+        slP2Y = d.posY(p2Y - PADDLE_H);
+        d.longVec(0, 2 * PADDLE_H / 8);
+
+        // Scores
+        d.segment(true);
+        d.moveTo(200, 940);
+        slSc1 = d.call(dotsSub[0]);
+        d.moveTo(600, 940);
+        slSc2 = d.call(dotsSub[0]);
+
+        // Ball: two points side by side
+        d.segment(false);
+        slBallX  = d.posX(ballX);
+        slBallY  = d.posY(ballY);
+        d.point();
+        slBallX2 = d.posX(ballX + 3);
+        d.point();
+
+        d.finish();
     }
 
-    // Offsets set by writeDisplayProgram()
-    private int dpOffBX, dpOffBY, dpOffBX2, dpOffP1Y, dpOffP2Y;
-    private int dpOffSc1, dpOffSc2, dpEnd;
-
-    /** Patch DP program with current positions (self-modifying code) */
+    /** Patch the DP program with the current positions (self-modifying code). */
     private void updateDP() {
-        int[] m = machine.mem;
-
-        // Ball
-        m[dpOffBX]  = dlxa(ballX);
-        m[dpOffBY]  = dlya(ballY);
-        m[dpOffBX2] = dlxa(ballX + 3); // second dot for bigger ball
-
-        // Paddles (Y = bottom of paddle)
-        m[dpOffP1Y] = dlya(p1Y - PADDLE_H);
-        m[dpOffP2Y] = dlya(p2Y - PADDLE_H);
-
-        // Score: patch DPTS vs NOP (use 0 as NOP — actually 0 = DLXA 0, harmless)
-        for (int i = 0; i < 9; i++) {
-            m[dpOffSc1 + i*2] = (i < sc1) ? 0x7800 : 0x1000; // DPTS or DLXA 0 (skip)
-            m[dpOffSc2 + i*2] = (i < sc2) ? 0x7800 : 0x1000;
-        }
-    }
-
-    // ── DP instruction builders ───────────────────────────────
-
-    private static int dlxa(int x) {
-        return 0x1000 | (clamp(x, 0, 1023) & 0x3FF);
-    }
-    private static int dlya(int y) {
-        return 0x2000 | (clamp(y, 0, 1023) & 0x3FF);
-    }
-    // DSVH: signed 5-bit dx, dy (max ±15 pixels)
-    private static int dsvh(int dx, int dy) {
-        int w = 0x3000;
-        if (dx < 0) { w |= 0x0800; dx = -dx; }
-        if (dy < 0) { w |= 0x0020; dy = -dy; }
-        w |= ((dx & 0x1F) << 6) | (dy & 0x1F);
-        return w;
-    }
-    // DLVH: 6-bit dx, dy multiplied by 8 (max ±504 pixels)
-    private static int dlvh(int dx, int dy) {
-        int w = 0x4000;
-        if (dx < 0) { w |= 0x0800; dx = -dx; }
-        if (dy < 0) { w |= 0x0020; dy = -dy; }
-        w |= ((dx & 0x3F) << 6) | (dy & 0x3F);
-        return w;
-    }
-    private static int clamp(int v, int lo, int hi) {
-        return v < lo ? lo : v > hi ? hi : v;
+        dp.set(slBallX,  ballX);
+        dp.set(slBallY,  ballY);
+        dp.set(slBallX2, ballX + 3);
+        dp.set(slP1Y, p1Y - PADDLE_H);
+        dp.set(slP2Y, p2Y - PADDLE_H);
+        dp.set(slSc1, dotsSub[Math.min(sc1, MAX_DOTS)]);
+        dp.set(slSc2, dotsSub[Math.min(sc2, MAX_DOTS)]);
     }
 }
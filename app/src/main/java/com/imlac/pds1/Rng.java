@@ -0,0 +1,63 @@
+package com.imlac.pds1;
+
+/**
+ * Small seedable random generator for game and demo logic.
+ *
+ * xoroshiro128** with its state expanded from a 64-bit seed by SplitMix64,
+ * so equal seeds give equal sequences on every device — a match, a
+ * benchmark run or both peers of a network game can be replayed exactly.
+ * Unlike java.util.Random there is no atomic update and nothing is
+ * allocated per call. Not thread-safe: each owner keeps its own instance
+ * on its own thread.
+ */
+public final class Rng {
+
+    private long s0, s1;
+
+    public Rng(long seed) { seed(seed); }
+
+    /** Restart the sequence from seed. */
+    public void seed(long seed) {
+        s0 = splitMix(seed);
+        s1 = splitMix(seed + 0x9E3779B97F4A7C15L);
+        if ((s0 | s1) == 0) s1 = 1;          // all-zero state never leaves zero
+    }
+
+    /** SplitMix64 finalizer: a well-mixed 64-bit value from any input. */
+    public static long splitMix(long z) {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /** A fresh seed for a new session (time based — record it to replay). */
+    public static long newSeed() { return splitMix(System.nanoTime() ^ System.currentTimeMillis() << 20); }
+
+    public long nextLong() {
+        long a = s0, b = s1;
+        long r = Long.rotateLeft(a * 5, 7) * 9;
+        b ^= a;
+        s0 = Long.rotateLeft(a, 24) ^ b ^ (b << 16);
+        s1 = Long.rotateLeft(b, 37);
+        return r;
+    }
+
+    public int nextInt() { return (int) (nextLong() >>> 32); }
+
+    /** Uniform in 0..bound-1 (bound > 0), by Lemire's multiply-shift with rejection. */
+    public int nextInt(int bound) {
+        long m = (nextLong() >>> 32) * bound;
+        if ((m & 0xFFFFFFFFL) < bound) {
+            long t = (0x100000000L - bound) % bound;
+            while ((m & 0xFFFFFFFFL) < t) m = (nextLong() >>> 32) * bound;
+        }
+        return (int) (m >>> 32);
+    }
+
+    /** Uniform in [0, 1). */
+    public float nextFloat() { return (nextLong() >>> 40) * 0x1.0p-24f; }
+
+    /** True with probability p. */
+    public boolean chance(float p) { return nextFloat() < p; }
+}
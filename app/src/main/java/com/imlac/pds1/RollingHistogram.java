@@ -0,0 +1,83 @@
+package com.imlac.pds1;
+
+/**
+ * Rolling window of timing samples (microseconds) with a fixed-bucket
+ * histogram kept in step, so percentiles cost one scan over the
+ * buckets and adding a sample is O(1). Allocation-free after
+ * construction. Not thread-safe: record and read from one thread,
+ * or accept slightly torn readings for on-screen stats.
+ */
+public class RollingHistogram {
+
+    private final int[] ring;
+    private final int[] bins;
+    private final int   binUs;
+    private int  head  = 0;
+    private int  count = 0;
+    private long sum   = 0;
+
+    /**
+     * @param window  number of most recent samples kept
+     * @param binUs   bucket width in microseconds
+     * @param nBins   bucket count; larger samples land in the last bucket
+     */
+    public RollingHistogram(int window, int binUs, int nBins) {
+        this.ring  = new int[window];
+        this.bins  = new int[nBins];
+        this.binUs = binUs;
+    }
+
+    public void add(int us) {
+        if (us < 0) us = 0;
+        if (count == ring.length) {
+            int old = ring[head];
+            bins[bin(old)]--;
+            sum -= old;
+        } else {
+            count++;
+        }
+        ring[head] = us;
+        bins[bin(us)]++;
+        sum += us;
+        head = (head + 1) % ring.length;
+    }
+
+    private int bin(int us) {
+        int b = us / binUs;
+        return b < bins.length ? b : bins.length - 1;
+    }
+
+    /** Upper edge (µs) of the bucket holding the p-th percentile, p in 0..1. */
+    public int percentile(float p) {
+        if (count == 0) return 0;
+        int target = (int) Math.ceil(p * count);
+        if (target < 1) target = 1;
+        int acc = 0;
+        for (int b = 0; b < bins.length; b++) {
+            acc += bins[b];
+            if (acc >= target) return (b + 1) * binUs;
+        }
+        return bins.length * binUs;
+    }
+
+    public int mean()  { return count == 0 ? 0 : (int)(sum / count); }
+    public int count() { return count; }
+
+    /** Most recent sample, or 0 if empty. */
+    public int last() {
+        return count == 0 ? 0 : ring[(head + ring.length - 1) % ring.length];
+    }
+
+    /** Copy the window into out[], oldest first; returns the number copied. */
+    public int copySamples(int[] out) {
+        int n = Math.min(count, out.length);
+        int start = (head - count + ring.length) % ring.length;
+        for (int i = 0; i < n; i++) out[i] = ring[(start + i) % ring.length];
+        return n;
+    }
+
+    public void clear() {
+        java.util.Arrays.fill(bins, 0);
+        head = 0; count = 0; sum = 0;
+    }
+}
@@ -0,0 +1,285 @@
+package com.imlac.pds1;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * CPU vector renderer: draws a display list into an ARGB int[] framebuffer
+ * without OpenGL, for screenshots, headless runs and image comparisons.
+ * Plain Java only — no android.* imports — so it also runs on a desktop JVM.
+ *
+ * Lines are Xiaolin Wu anti-aliased, points are bilinear splats, and
+ * intensities add up (like phosphor) before being clamped and tinted.
+ *
+ * The screen is split into 64×64 tiles. Vectors are first binned by
+ * bounding box, then worker threads claim tiles and rasterize each
+ * tile's list clipped to the tile, so tiles never share pixels and no
+ * locking is needed. Pre-allocated and reused — zero GC per frame
+ * (apart from growing the bin list once).
+ */
+public class SoftRenderer {
+
+    private static final int TILE = 64;
+    private static final int PDS  = 1024;
+
+    // Phosphor green core, same as CrtView
+    private static final int TINT_R = 26, TINT_G = 256, TINT_B = 77;   // /256
+
+    public final int width, height;
+    private final int[] acc;      // summed intensity, 8.8 fixed point
+    private final int[] pixels;   // resolved 0xAARRGGBB
+    private final float sx, sy;   // pixels per PDS unit
+
+    private final int tilesX, tilesY, nTiles;
+    private final int[] tileStart;          // nTiles + 1 offsets into tileList
+    private final int[] tileFill;
+    private int[] tileList = new int[Machine.MAX_VEC * 2];
+
+    private final DisplayFrame scratch = new DisplayFrame();
+    private DisplayFrame flat;    // frames with retained layers, flattened (allocated on first use)
+    private DisplayFrame cur;
+
+    private final ExecutorService pool;
+    private final Runnable[] workers;
+    private final AtomicInteger nextTile = new AtomicInteger();
+    private volatile CountDownLatch done;
+
+    /** Renderer for a w×h framebuffer using all available cores. */
+    public SoftRenderer(int w, int h) {
+        this(w, h, Runtime.getRuntime().availableProcessors());
+    }
+
+    public SoftRenderer(int w, int h, int threads) {
+        width = w; height = h;
+        acc    = new int[w * h];
+        pixels = new int[w * h];
+        sx = (float) w / PDS;
+        sy = (float) h / PDS;
+        tilesX = (w + TILE - 1) / TILE;
+        tilesY = (h + TILE - 1) / TILE;
+        nTiles = tilesX * tilesY;
+        tileStart = new int[nTiles + 1];
+        tileFill  = new int[nTiles];
+
+        // The calling thread works too, so threads-1 helpers are enough
+        int helpers = Math.max(0, threads - 1);
+        AtomicInteger id = new AtomicInteger();
+        pool = helpers == 0 ? null : Executors.newFixedThreadPool(helpers, r -> {
+            Thread t = new Thread(r, "imlac-raster-" + id.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        workers = new Runnable[helpers];
+        for (int i = 0; i < helpers; i++)
+            workers[i] = () -> { drainTiles(); done.countDown(); };
+    }
+
+    /** Render the machine's current display list; returns the framebuffer. */
+    public int[] render(Machine m) {
+        scratch.copyFrom(m, 0);
+        return render(scratch);
+    }
+
+    /** Render a published frame; returns the framebuffer (owned by this renderer). */
+    public int[] render(DisplayFrame f) {
+        if (f.nLayers > 0) {
+            if (flat == null) flat = new DisplayFrame();
+            f.flattenInto(flat);
+            f = flat;
+        }
+        cur = f;
+        binVectors(f);
+        nextTile.set(0);
+        if (pool != null) {
+            done = new CountDownLatch(workers.length);
+            for (Runnable w : workers) pool.execute(w);
+        }
+        drainTiles();
+        if (pool != null) {
+            try { done.await(); }
+            catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        }
+        cur = null;
+        return pixels;
+    }
+
+    public int[] getPixels() { return pixels; }
+
+    /** Stop the worker threads. The renderer cannot be used afterwards. */
+    public void shutdown() { if (pool != null) pool.shutdown(); }
+
+    // ── Binning ───────────────────────────────────────────────
+
+    /** Counting sort of vector indices into every tile their bounding box touches. */
+    private void binVectors(DisplayFrame f) {
+        java.util.Arrays.fill(tileFill, 0);
+        int total = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < f.n; i++) {
+                if (f.br[i] < 10) continue;
+                int xa = f.x1[i], ya = f.y1[i], xb = f.pt[i] ? xa : f.x2[i], yb = f.pt[i] ? ya : f.y2[i];
+                int tx0 = tileX(Math.min(xa, xb) * sx - 1f), tx1 = tileX(Math.max(xa, xb) * sx + 2f);
+                int ty0 = tileY((PDS - 1 - Math.max(ya, yb)) * sy - 1f);
+                int ty1 = tileY((PDS - 1 - Math.min(ya, yb)) * sy + 2f);
+                for (int ty = ty0; ty <= ty1; ty++)
+                    for (int tx = tx0; tx <= tx1; tx++) {
+                        int t = ty * tilesX + tx;
+                        if (pass == 0) tileFill[t]++;
+                        else tileList[tileStart[t] + tileFill[t]++] = i;
+                    }
+            }
+            if (pass == 0) {
+                for (int t = 0; t < nTiles; t++) { tileStart[t] = total; total += tileFill[t]; tileFill[t] = 0; }
+                tileStart[nTiles] = total;
+                if (total > tileList.length) tileList = new int[total + total / 2];
+            }
+        }
+    }
+
+    private int tileX(float px) { return Math.max(0, Math.min(tilesX - 1, (int) px / TILE)); }
+    private int tileY(float py) { return Math.max(0, Math.min(tilesY - 1, (int) py / TILE)); }
+
+    // ── Tile rasterization ────────────────────────────────────
+
+    private void drainTiles() {
+        int t;
+        while ((t = nextTile.getAndIncrement()) < nTiles) drawTile(t);
+    }
+
+    private void drawTile(int t) {
+        int x0 = (t % tilesX) * TILE, y0 = (t / tilesX) * TILE;
+        int x1 = Math.min(width, x0 + TILE), y1 = Math.min(height, y0 + TILE);
+        for (int y = y0; y < y1; y++) java.util.Arrays.fill(acc, y * width + x0, y * width + x1, 0);
+
+        DisplayFrame f = cur;
+        for (int k = tileStart[t], end = tileStart[t + 1]; k < end; k++) {
+            int i = tileList[k];
+            int br = Math.min(255, f.br[i]);
+            float ax = f.x1[i] * sx, ay = (PDS - 1 - f.y1[i]) * sy;
+            if (f.pt[i]) splat(ax, ay, br, x0, y0, x1, y1);
+            else wuLine(ax, ay, f.x2[i] * sx, (PDS - 1 - f.y2[i]) * sy, br, x0, y0, x1, y1);
+        }
+
+        for (int y = y0; y < y1; y++) {
+            for (int x = x0, p = y * width + x0; x < x1; x++, p++) {
+                int v = acc[p] >> 8;
+                if (v > 255) v = 255;
+                pixels[p] = 0xFF000000 | (v * TINT_R >> 8) << 16 | (v * TINT_G >> 8) << 8 | (v * TINT_B >> 8);
+            }
+        }
+    }
+
+    /** Xiaolin Wu line, major axis clipped to the tile so long lines are not walked per tile. */
+    private void wuLine(float ax, float ay, float bx, float by, int br,
+                        int cx0, int cy0, int cx1, int cy1) {
+        boolean steep = Math.abs(by - ay) > Math.abs(bx - ax);
+        if (steep) {
+            float s = ax; ax = ay; ay = s;
+            s = bx; bx = by; by = s;
+            int c = cx0; cx0 = cy0; cy0 = c;
+            c = cx1; cx1 = cy1; cy1 = c;
+        }
+        if (ax > bx) {
+            float s = ax; ax = bx; bx = s;
+            s = ay; ay = by; by = s;
+        }
+        float g = bx - ax < 1e-6f ? 0f : (by - ay) / (bx - ax);
+
+        int xs = Math.max(cx0, Math.round(ax)), xe = Math.min(cx1 - 1, Math.round(bx));
+        // Narrow the range further to where the line crosses the tile's minor extent
+        if (g != 0f) {
+            float xa = ax + (cy0 - 1 - ay) / g, xb = ax + (cy1 - ay) / g;
+            if (xa > xb) { float s = xa; xa = xb; xb = s; }
+            xs = Math.max(xs, (int) Math.floor(xa));
+            xe = Math.min(xe, (int) Math.ceil(xb));
+        }
+        for (int x = xs; x <= xe; x++) {
+            float y = ay + g * (x - ax);
+            int yi = (int) Math.floor(y);
+            int w = (int)((y - yi) * 256f);
+            plot(steep, x, yi,     br * (256 - w), cy0, cy1);
+            plot(steep, x, yi + 1, br * w,         cy0, cy1);
+        }
+    }
+
+    private void plot(boolean steep, int major, int minor, int v, int cMin, int cMax) {
+        if (minor < cMin || minor >= cMax) return;
+        acc[steep ? major * width + minor : minor * width + major] += v;
+    }
+
+    /** Point: bilinear splat over the 2×2 neighbourhood, at double weight. */
+    private void splat(float px, float py, int br, int cx0, int cy0, int cx1, int cy1) {
+        int xi = (int) Math.floor(px), yi = (int) Math.floor(py);
+        int fx = (int)((px - xi) * 256f), fy = (int)((py - yi) * 256f);
+        int b2 = br * 2;
+        splatPixel(xi,     yi,     b2 * (256 - fx) >> 8, 256 - fy, cx0, cy0, cx1, cy1);
+        splatPixel(xi + 1, yi,     b2 * fx >> 8,         256 - fy, cx0, cy0, cx1, cy1);
+        splatPixel(xi,     yi + 1, b2 * (256 - fx) >> 8, fy,       cx0, cy0, cx1, cy1);
+        splatPixel(xi + 1, yi + 1, b2 * fx >> 8,         fy,       cx0, cy0, cx1, cy1);
+    }
+
+    private void splatPixel(int x, int y, int v, int w, int cx0, int cy0, int cx1, int cy1) {
+        if (x < cx0 || x >= cx1 || y < cy0 || y >= cy1) return;
+        acc[y * width + x] += v * w;
+    }
+
+    // ── PNG export ────────────────────────────────────────────
+
+    public void writePng(File file) throws IOException {
+        try (OutputStream os = new FileOutputStream(file)) { writePng(os); }
+    }
+
+    /** Write the last rendered frame as an 8-bit RGB PNG (no android.graphics needed). */
+    public void writePng(OutputStream os) throws IOException {
+        DataOutputStream out = new DataOutputStream(os);
+        out.write(new byte[]{ (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' });
+
+        ByteArrayOutputStream hdr = new ByteArrayOutputStream(13);
+        DataOutputStream h = new DataOutputStream(hdr);
+        h.writeInt(width); h.writeInt(height);
+        h.writeByte(8);    // bit depth
+        h.writeByte(2);    // colour type: RGB
+        h.writeByte(0); h.writeByte(0); h.writeByte(0);
+        writeChunk(out, "IHDR", hdr.toByteArray());
+
+        ByteArrayOutputStream img = new ByteArrayOutputStream(width * height / 4);
+        Deflater def = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream z = new DeflaterOutputStream(img, def)) {
+            byte[] row = new byte[1 + width * 3];   // filter type 0 + RGB
+            for (int y = 0; y < height; y++) {
+                for (int x = 0, o = 1, p = y * width; x < width; x++, p++) {
+                    int c = pixels[p];
+                    row[o++] = (byte)(c >> 16); row[o++] = (byte)(c >> 8); row[o++] = (byte) c;
+                }
+                z.write(row);
+            }
+        } finally {
+            def.end();
+        }
+        writeChunk(out, "IDAT", img.toByteArray());
+        writeChunk(out, "IEND", new byte[0]);
+        out.flush();
+    }
+
+    private static void writeChunk(DataOutputStream out, String type, byte[] data) throws IOException {
+        byte[] t = type.getBytes("US-ASCII");
+        CRC32 crc = new CRC32();
+        crc.update(t);
+        crc.update(data);
+        out.writeInt(data.length);
+        out.write(t);
+        out.write(data);
+        out.writeInt((int) crc.getValue());
+    }
+}
@@ -0,0 +1,286 @@
+package com.imlac.pds1;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Many-body Spacewar: hundreds of ships and thousands of torpedoes falling
+ * around the central star. Used by the SWARM demo as a standing load test
+ * for the physics and the whole display pipeline.
+ *
+ * Ships and torpedoes live in primitive structure-of-arrays buffers,
+ * allocated once at the maximum size. Torpedoes are kept dense
+ * (0..nTorps-1, removed by swapping the last one in), so every pass is a
+ * straight walk over a few float arrays.
+ *
+ * One step() is one fixed tick (1/Demos.SIM_HZ s); velocities are in PDS
+ * units per tick. Integration (semi-implicit Euler under inverse-square
+ * gravity) touches each body independently, so it can be split across a
+ * fork-join pool and still give exactly the serial result. Collisions run
+ * afterwards on the calling thread through a uniform grid: ships are
+ * counting-sorted into CELL-sized cells and each torpedo only tests the
+ * 3×3 cells around it. Emulation thread only.
+ */
+public final class SpacewarSim {
+
+    public static final int MAX_SHIPS = 1024;
+    public static final int MAX_TORPS = 8192;
+    public static final int DEFAULT_SHIPS = 512;
+
+    // Central star (inverse-square pull, swallows what comes too close)
+    public static final int   STAR_X = 512, STAR_Y = 512, STAR_R = 24;
+    private static final float GM    = 2700f;          // circular orbit at r: v = sqrt(GM / r)
+    private static final float R2_MIN = STAR_R * STAR_R;
+
+    private static final int   SHIP_R     = 6;          // torpedo hit radius
+    private static final int   TORP_LIFE  = 150;        // ticks
+    private static final float TORP_SPEED = 6f;
+    private static final int   FIRE_EVERY = 8;          // ticks between shots per ship (± jitter)
+    private static final int   ARMED_AFTER = 6;         // own torpedo cannot hit its ship before this
+
+    // ── Ships (dense 0..nShips-1, respawned in place when destroyed) ──
+    public final float[] sx  = new float[MAX_SHIPS], sy  = new float[MAX_SHIPS];
+    public final float[] svx = new float[MAX_SHIPS], svy = new float[MAX_SHIPS];
+    public final float[] spx = new float[MAX_SHIPS], spy = new float[MAX_SHIPS];   // one tick earlier
+    public final int[]   sAng  = new int[MAX_SHIPS];    // FixedTrig angle
+    public final int[]   sSpin = new int[MAX_SHIPS];
+    private final int[]  sFire = new int[MAX_SHIPS];
+    private final boolean[] sHit = new boolean[MAX_SHIPS];
+    public int nShips = 0;
+
+    // ── Torpedoes (dense 0..nTorps-1) ─────────────────────────
+    public final float[] tx  = new float[MAX_TORPS], ty  = new float[MAX_TORPS];
+    public final float[] tvx = new float[MAX_TORPS], tvy = new float[MAX_TORPS];
+    public final float[] tpx = new float[MAX_TORPS], tpy = new float[MAX_TORPS];
+    public final int[]   tLife  = new int[MAX_TORPS];
+    private final int[]  tOwner = new int[MAX_TORPS];
+    public int nTorps = 0;
+
+    // ── Broad phase: ships counting-sorted into a uniform grid ─
+    private static final int CELL  = 32;                // PDS units per cell (> 2 × SHIP_R)
+    private static final int GRID  = 1024 / CELL;
+    private static final int CELLS = GRID * GRID;
+    private final int[] cellStart = new int[CELLS + 1];
+    private final int[] cellFill  = new int[CELLS];
+    private final int[] cellList  = new int[MAX_SHIPS];
+    private final int[] shipCell  = new int[MAX_SHIPS];
+
+    public int kills = 0;          // ships destroyed since reset()
+    private final Rng rng;
+
+    public SpacewarSim(Rng rng) { this.rng = rng; }
+
+    // ── Setup ─────────────────────────────────────────────────
+
+    /** Start over with n ships (clamped to 1..MAX_SHIPS) and no torpedoes. */
+    public void reset(int n) {
+        nShips = Math.max(1, Math.min(MAX_SHIPS, n));
+        nTorps = 0;
+        kills  = 0;
+        for (int i = 0; i < nShips; i++) spawnShip(i);
+    }
+
+    /** Place ship i on a random circular orbit, either direction. */
+    private void spawnShip(int i) {
+        float r = 90 + rng.nextFloat() * 360;
+        int   a = rng.nextInt(FixedTrig.TURN);
+        float c = FixedTrig.cos(a) / (float) FixedTrig.ONE, s = FixedTrig.sin(a) / (float) FixedTrig.ONE;
+        float v = (float) Math.sqrt(GM / r) * (rng.chance(0.5f) ? 1 : -1);
+        sx[i]  = STAR_X + c * r;  sy[i]  = STAR_Y + s * r;
+        svx[i] = -s * v;          svy[i] = c * v;
+        spx[i] = sx[i];           spy[i] = sy[i];
+        sAng[i]  = rng.nextInt(FixedTrig.TURN);
+        sSpin[i] = (8 + rng.nextInt(24)) * (rng.chance(0.5f) ? 1 : -1);
+        sFire[i] = rng.nextInt(FIRE_EVERY);
+    }
+
+    // ── Parallel integration ──────────────────────────────────
+    // Work is cut into fixed chunks of ships and torpedoes; the task objects
+    // are allocated once and reinitialized every tick, so stepping does not
+    // allocate. threads == 1 (or a single core) integrates on the caller.
+    private static final int CHUNKS = 16;
+    private ForkJoinPool pool;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private final Chunk[] chunks = new Chunk[CHUNKS];
+    private final RecursiveAction all = new RecursiveAction() {
+        @Override protected void compute() { invokeAll(chunks); }
+    };
+    {
+        for (int i = 0; i < CHUNKS; i++) chunks[i] = new Chunk(i);
+    }
+
+    private final class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        final int k;
+        Chunk(int k) { this.k = k; }
+        @Override protected void compute() {
+            integrateShips(nShips * k / CHUNKS, nShips * (k + 1) / CHUNKS);
+            integrateTorps(nTorps * k / CHUNKS, nTorps * (k + 1) / CHUNKS);
+        }
+    }
+
+    /** Worker threads for integration (1 = serial). Takes effect on the next step(). */
+    public void setThreads(int n) {
+        threads = Math.max(1, n);
+        if (pool != null && pool.getParallelism() != threads) { pool.shutdown(); pool = null; }
+    }
+
+    public int getThreads() { return threads; }
+
+    /** Stop the worker threads; a later step() starts them again if needed. */
+    public void shutdown() {
+        if (pool != null) { pool.shutdown(); pool = null; }
+    }
+
+    // ── Tick ──────────────────────────────────────────────────
+
+    /** Advance everything by one fixed tick. */
+    public void step() {
+        if (threads > 1 && nShips + nTorps >= CHUNKS * 64) {
+            if (pool == null) pool = new ForkJoinPool(threads, p -> {
+                ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                t.setName("imlac-swarm-" + t.getPoolIndex());
+                t.setDaemon(true);
+                return t;
+            }, null, false);
+            all.reinitialize();
+            for (Chunk c : chunks) c.reinitialize();
+            pool.invoke(all);
+        } else {
+            integrateShips(0, nShips);
+            integrateTorps(0, nTorps);
+        }
+        expireTorps();
+        buildGrid();
+        collide();
+        fire();
+    }
+
+    private void integrateShips(int lo, int hi) {
+        for (int i = lo; i < hi; i++) {
+            float x = sx[i], y = sy[i];
+            spx[i] = x; spy[i] = y;
+            float dx = STAR_X - x, dy = STAR_Y - y;
+            float r2 = Math.max(dx * dx + dy * dy, R2_MIN);
+            float g  = GM / (r2 * (float) Math.sqrt(r2));
+            float vx = svx[i] + dx * g, vy = svy[i] + dy * g;
+            svx[i] = vx; svy[i] = vy;
+            sx[i] = wrap(x + vx); sy[i] = wrap(y + vy);
+            sAng[i] = (sAng[i] + sSpin[i]) & FixedTrig.MASK;
+            sHit[i] = false;
+        }
+    }
+
+    private void integrateTorps(int lo, int hi) {
+        for (int i = lo; i < hi; i++) {
+            float x = tx[i], y = ty[i];
+            tpx[i] = x; tpy[i] = y;
+            float dx = STAR_X - x, dy = STAR_Y - y;
+            float r2 = Math.max(dx * dx + dy * dy, R2_MIN);
+            float g  = GM / (r2 * (float) Math.sqrt(r2));
+            float vx = tvx[i] + dx * g, vy = tvy[i] + dy * g;
+            tvx[i] = vx; tvy[i] = vy;
+            tx[i] = wrap(x + vx); ty[i] = wrap(y + vy);
+            tLife[i]--;
+        }
+    }
+
+    private static float wrap(float v) {
+        if (v < 0) return v + 1024;
+        if (v >= 1024) return v - 1024;
+        return v;
+    }
+
+    /** Drop torpedoes that burnt out or fell into the star. */
+    private void expireTorps() {
+        for (int i = 0; i < nTorps; ) {
+            if (tLife[i] <= 0 || inStar(tx[i], ty[i])) removeTorp(i);
+            else i++;
+        }
+    }
+
+    private static boolean inStar(float x, float y) {
+        float dx = x - STAR_X, dy = y - STAR_Y;
+        return dx * dx + dy * dy < R2_MIN;
+    }
+
+    private void removeTorp(int i) {
+        int last = --nTorps;
+        tx[i] = tx[last];   ty[i] = ty[last];
+        tvx[i] = tvx[last]; tvy[i] = tvy[last];
+        tpx[i] = tpx[last]; tpy[i] = tpy[last];
+        tLife[i] = tLife[last]; tOwner[i] = tOwner[last];
+    }
+
+    // ── Collision ─────────────────────────────────────────────
+
+    private static int cellOf(float x, float y) {
+        return ((int) y / CELL & (GRID - 1)) * GRID + ((int) x / CELL & (GRID - 1));
+    }
+
+    /** Counting sort of ship indices by grid cell. */
+    private void buildGrid() {
+        java.util.Arrays.fill(cellFill, 0);
+        for (int i = 0; i < nShips; i++) cellFill[shipCell[i] = cellOf(sx[i], sy[i])]++;
+        int sum = 0;
+        for (int c = 0; c < CELLS; c++) { cellStart[c] = sum; sum += cellFill[c]; cellFill[c] = 0; }
+        cellStart[CELLS] = sum;
+        for (int i = 0; i < nShips; i++) {
+            int c = shipCell[i];
+            cellList[cellStart[c] + cellFill[c]++] = i;
+        }
+    }
+
+    /** Squared distance on the wrapping 1024×1024 playfield. */
+    private static float dist2(float ax, float ay, float bx, float by) {
+        float dx = Math.abs(ax - bx), dy = Math.abs(ay - by);
+        if (dx > 512) dx = 1024 - dx;
+        if (dy > 512) dy = 1024 - dy;
+        return dx * dx + dy * dy;
+    }
+
+    private void collide() {
+        final float hitT = SHIP_R * SHIP_R;
+        // Torpedo → ship: the torpedo is spent on the first ship it touches
+        for (int i = 0; i < nTorps; ) {
+            float x = tx[i], y = ty[i];
+            boolean armed = tLife[i] < TORP_LIFE - ARMED_AFTER;
+            int hit = -1, gx = (int) x / CELL, gy = (int) y / CELL;
+            search:
+            for (int oy = -1; oy <= 1; oy++) for (int ox = -1; ox <= 1; ox++) {
+                int c = ((gy + oy) & (GRID - 1)) * GRID + ((gx + ox) & (GRID - 1));
+                for (int k = cellStart[c], e = cellStart[c + 1]; k < e; k++) {
+                    int s = cellList[k];
+                    if (s == tOwner[i] && !armed) continue;
+                    if (dist2(x, y, sx[s], sy[s]) < hitT) { hit = s; break search; }
+                }
+            }
+            if (hit >= 0) { sHit[hit] = true; removeTorp(i); }
+            else i++;
+        }
+        // Ships fallen into the star (a fleet this dense passes through itself)
+        for (int i = 0; i < nShips; i++)
+            if (inStar(sx[i], sy[i])) sHit[i] = true;
+        for (int i = 0; i < nShips; i++)
+            if (sHit[i]) { spawnShip(i); kills++; }
+    }
+
+    // ── Firing ────────────────────────────────────────────────
+
+    private void fire() {
+        for (int i = 0; i < nShips; i++) {
+            if (--sFire[i] > 0) continue;
+            sFire[i] = FIRE_EVERY - 2 + rng.nextInt(5);
+            if (nTorps >= MAX_TORPS) continue;
+            int t = nTorps++, a = sAng[i];
+            float c = FixedTrig.cos(a) / (float) FixedTrig.ONE, s = FixedTrig.sin(a) / (float) FixedTrig.ONE;
+            tx[t]  = wrap(sx[i] + c * SHIP_R * 1.5f); ty[t] = wrap(sy[i] + s * SHIP_R * 1.5f);
+            tpx[t] = tx[t];   tpy[t] = ty[t];
+            tvx[t] = svx[i] + c * TORP_SPEED;
+            tvy[t] = svy[i] + s * TORP_SPEED;
+            tLife[t]  = TORP_LIFE;
+            tOwner[t] = i;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.imlac.pds1;
+
+/**
+ * Shared stroke font for all on-screen text (demos and Maze War).
+ *
+ * Glyph strokes are defined once on a 4×4 grid. For every text scale in
+ * use, the strokes are pre-multiplied into packed integer segments
+ * (x1, y1, x2, y2 per stroke), so drawing a glyph is a single bulk copy
+ * into the display list — no per-stroke float math, no charset search,
+ * no toCharArray(). Scales are compiled on first use and kept; after
+ * that, drawing text allocates nothing.
+ */
+public final class VectorFont {
+
+    private VectorFont() {}
+
+    // Strokes: {x1,y1,x2,y2} on a 4×4 grid, Y-up
+    private static final int[][][] FONT = {
+        {/* A */{0,0,2,4},{2,4,4,0},{1,2,3,2}},
+        {/* B */{0,0,0,4},{0,4,2,4},{0,2,2,2},{0,0,2,0},{2,4,3,3},{3,3,2,2},{2,2,3,1},{3,1,2,0}},
+        {/* C */{3,4,0,4},{0,4,0,0},{0,0,3,0}},
+        {/* D */{0,0,0,4},{0,4,2,4},{2,4,4,2},{4,2,2,0},{2,0,0,0}},
+        {/* E */{0,0,0,4},{0,4,4,4},{0,2,3,2},{0,0,4,0}},
+        {/* F */{0,0,0,4},{0,4,4,4},{0,2,3,2}},
+        {/* G */{3,4,0,4},{0,4,0,0},{0,0,4,0},{4,0,4,2},{4,2,2,2}},
+        {/* H */{0,0,0,4},{4,0,4,4},{0,2,4,2}},
+        {/* I */{1,0,3,0},{1,4,3,4},{2,0,2,4}},
+        {/* J */{1,4,3,4},{3,4,3,0},{3,0,0,0}},
+        {/* K */{0,0,0,4},{0,2,4,4},{0,2,4,0}},
+        {/* L */{0,4,0,0},{0,0,4,0}},
+        {/* M */{0,0,0,4},{0,4,2,2},{2,2,4,4},{4,4,4,0}},
+        {/* N */{0,0,0,4},{0,4,4,0},{4,0,4,4}},
+        {/* O */{0,0,4,0},{4,0,4,4},{4,4,0,4},{0,4,0,0}},
+        {/* P */{0,0,0,4},{0,4,3,4},{3,4,4,3},{4,3,3,2},{3,2,0,2}},
+        {/* Q */{0,0,4,0},{4,0,4,4},{4,4,0,4},{0,4,0,0},{2,2,4,0}},
+        {/* R */{0,0,0,4},{0,4,3,4},{3,4,4,3},{4,3,3,2},{3,2,0,2},{2,2,4,0}},
+        {/* S */{4,4,0,4},{0,4,0,2},{0,2,4,2},{4,2,4,0},{4,0,0,0}},
+        {/* T */{0,4,4,4},{2,4,2,0}},
+        {/* U */{0,4,0,0},{0,0,4,0},{4,0,4,4}},
+        {/* V */{0,4,2,0},{2,0,4,4}},
+        {/* W */{0,4,1,0},{1,0,2,2},{2,2,3,0},{3,0,4,4}},
+        {/* X */{0,0,4,4},{4,0,0,4}},
+        {/* Y */{0,4,2,2},{4,4,2,2},{2,2,2,0}},
+        {/* Z */{0,4,4,4},{4,4,0,0},{0,0,4,0}},
+        {/* 0 */{0,0,4,0},{4,0,4,4},{4,4,0,4},{0,4,0,0},{0,0,4,4}},
+        {/* 1 */{1,4,2,4},{2,4,2,0},{1,0,3,0}},
+        {/* 2 */{0,4,4,4},{4,4,4,3},{4,3,0,1},{0,1,0,0},{0,0,4,0}},
+        {/* 3 */{0,4,4,4},{4,4,4,0},{0,0,4,0},{0,2,4,2}},
+        {/* 4 */{0,4,0,2},{0,2,4,2},{4,4,4,0}},
+        {/* 5 */{4,4,0,4},{0,4,0,2},{0,2,4,2},{4,2,4,0},{4,0,0,0}},
+        {/* 6 */{4,4,0,4},{0,4,0,0},{0,0,4,0},{4,0,4,2},{4,2,0,2}},
+        {/* 7 */{0,4,4,4},{4,4,2,0}},
+        {/* 8 */{0,0,4,0},{4,0,4,4},{4,4,0,4},{0,4,0,0},{0,2,4,2}},
+        {/* 9 */{4,0,4,4},{4,4,0,4},{0,4,0,2},{0,2,4,2}},
+        {/* - */{0,2,4,2}},
+        {/* . */{2,0,2,0}},
+        {/* : */{2,1,2,1},{2,3,2,3}},
+        {/* ! */{2,4,2,1},{2,0,2,0}},
+        {/* SPACE */},
+    };
+    private static final String CHARSET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789-.:! ";
+    private static final int DIGIT0 = 26;
+
+    // ASCII → glyph index (lower case folded to upper), -1 = not drawable
+    private static final byte[] INDEX = new byte[128];
+    static {
+        java.util.Arrays.fill(INDEX, (byte) -1);
+        for (int i = 0; i < CHARSET.length(); i++) {
+            char c = CHARSET.charAt(i);
+            INDEX[c] = (byte) i;
+            INDEX[Character.toLowerCase(c)] = (byte) i;
+        }
+    }
+
+    /** All glyphs pre-multiplied for one scale. */
+    private static final class Scaled {
+        final float scale;
+        final int   advance, lineHeight;
+        final int[] start = new int[FONT.length + 1];   // glyph → offset into seg
+        final int[] seg;                                // x1,y1,x2,y2 per stroke
+
+        Scaled(float sc) {
+            scale = sc;
+            advance    = (int)(sc * 5.5f);
+            lineHeight = (int)(sc * 6);
+            int n = 0;
+            for (int[][] g : FONT) n += g.length;
+            seg = new int[n * 4];
+            int o = 0;
+            for (int g = 0; g < FONT.length; g++) {
+                start[g] = o;
+                for (int[] s : FONT[g])
+                    for (int k = 0; k < 4; k++) seg[o++] = (int)(s[k] * sc);
+            }
+            start[FONT.length] = o;
+        }
+    }
+
+    // Copy-on-write list of compiled scales; lookups never lock
+    private static volatile Scaled[] cache = new Scaled[0];
+
+    private static Scaled scaled(float sc) {
+        Scaled[] c = cache;
+        for (Scaled s : c) if (s.scale == sc) return s;
+        synchronized (VectorFont.class) {
+            c = cache;
+            for (Scaled s : c) if (s.scale == sc) return s;
+            Scaled s = new Scaled(sc);
+            Scaled[] n = java.util.Arrays.copyOf(c, c.length + 1);
+            n[c.length] = s;
+            cache = n;
+            return s;
+        }
+    }
+
+    // ── Drawing ───────────────────────────────────────────────
+
+    /** Draw one character; unknown characters draw nothing. */
+    public static void glyph(Machine m, char c, int ox, int oy, float scale, float b) {
+        int g = c < 128 ? INDEX[c] : -1;
+        if (g < 0) return;
+        Scaled s = scaled(scale);
+        m.dlSegments(s.seg, s.start[g], s.start[g + 1], ox, oy, b);
+    }
+
+    /** Draw a string ('\n' starts a new line); returns the x after the last character. */
+    public static int text(Machine m, CharSequence str, int ox, int oy, float scale, float b) {
+        Scaled s = scaled(scale);
+        int x = ox;
+        for (int i = 0, n = str.length(); i < n; i++) {
+            char c = str.charAt(i);
+            if (c == '\n') { oy -= s.lineHeight; x = ox; continue; }
+            int g = c < 128 ? INDEX[c] : -1;
+            if (g >= 0) m.dlSegments(s.seg, s.start[g], s.start[g + 1], x, oy, b);
+            x += s.advance;
+        }
+        return x;
+    }
+
+    /** Draw a decimal number, zero-padded to minDigits, without building a String. */
+    public static int number(Machine m, int value, int minDigits, int ox, int oy, float scale, float b) {
+        Scaled s = scaled(scale);
+        int x = ox;
+        long v = value;
+        if (v < 0) {
+            int g = CHARSET.indexOf('-');
+            m.dlSegments(s.seg, s.start[g], s.start[g + 1], x, oy, b);
+            x += s.advance;
+            v = -v;
+        }
+        int digits = 1;
+        for (long p = 10; p <= v && digits < 19; p *= 10) digits++;
+        if (digits < minDigits) digits = minDigits;
+        x += digits * s.advance;
+        int dx = x;
+        for (int i = 0; i < digits; i++) {
+            dx -= s.advance;
+            int g = DIGIT0 + (int)(v % 10);
+            m.dlSegments(s.seg, s.start[g], s.start[g + 1], dx, oy, b);
+            v /= 10;
+        }
+        return x;
+    }
+}
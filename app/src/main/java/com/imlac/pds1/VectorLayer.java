@@ -0,0 +1,114 @@
+package com.imlac.pds1;
+
+/**
+ * Retained vector layer for scenery that rarely changes (borders, maze
+ * walls, HUD frames).
+ *
+ * A demo records the layer once with its normal drawing helpers, between
+ * begin() and end() — the vectors are lifted out of the machine's display
+ * list into an immutable Snapshot — and then only attaches it each frame
+ * with Machine.dlLayer(). Nothing is re-emitted while the layer is clean;
+ * invalidate() makes the next begin() record it again.
+ *
+ * Snapshots never change after end(), so the renderer can keep each one
+ * in its own GPU buffer, keyed by (id, version), and upload it only when
+ * the version moves. Emulation thread only, apart from reading snapshots.
+ */
+public final class VectorLayer {
+
+    /** One recorded version of a layer. Immutable; safe to share across threads. */
+    public static final class Snapshot {
+        public final int id, version, n;
+        public final int[] x1, y1, x2, y2, br;
+        public final boolean[] pt;
+
+        Snapshot(int id, int version, int n) {
+            this.id = id; this.version = version; this.n = n;
+            x1 = new int[n]; y1 = new int[n]; x2 = new int[n]; y2 = new int[n];
+            br = new int[n]; pt = new boolean[n];
+        }
+    }
+
+    private static int nextId = 1;
+    private static synchronized int newId() { return nextId++; }
+
+    private final int id = newId();
+    private int version = 0;
+    private Snapshot snap = new Snapshot(id, 0, 0);
+    private boolean dirty = true;
+    private int mark = -1;
+
+    /** Force the layer to be recorded again on the next begin(). */
+    public void invalidate() { dirty = true; }
+
+    public boolean isDirty() { return dirty; }
+
+    /**
+     * Start recording if the layer is dirty; returns false (and records
+     * nothing) when the current snapshot is still valid.
+     */
+    public boolean begin(Machine m) {
+        if (!dirty) return false;
+        mark = m.nvec;
+        return true;
+    }
+
+    /**
+     * Finish recording: everything drawn since begin() becomes the new
+     * snapshot and is removed from the machine's display list again.
+     * Vectors entirely off-screen and exact duplicates (kept at the
+     * brighter intensity) are dropped here, once, instead of on every
+     * frame; zero-length lines become points.
+     */
+    public void end(Machine m) {
+        if (mark < 0) return;
+        int cnt = m.nvec - mark;
+        // Open-addressing set of packed endpoint pairs; recording is rare, so it is allocated here
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(1, cnt * 2 - 1));
+        long[] key = new long[1 << bits];
+        int[]  at  = new int[1 << bits];   // index + 1, 0 = empty
+        int[]  map = new int[cnt];         // source vector -> snapshot index, -1 = dropped
+        int k = 0;
+        for (int i = 0; i < cnt; i++) {
+            int v = mark + i;
+            map[i] = -1;
+            if (!keep(m, v)) continue;
+            int ax = m.vx1[v], ay = m.vy1[v];
+            int bx = m.vpt[v] ? ax : m.vx2[v], by = m.vpt[v] ? ay : m.vy2[v];
+            int pa = (ax & 0xFFFF) | ay << 16, pb = (bx & 0xFFFF) | by << 16;
+            long kk = pa < pb ? (long) pa << 32 | (pb & 0xFFFFFFFFL)
+                              : (long) pb << 32 | (pa & 0xFFFFFFFFL);
+            int slot = (int)((kk * 0x9E3779B97F4A7C15L) >>> (64 - bits));
+            while (at[slot] != 0 && key[slot] != kk) slot = (slot + 1) & ((1 << bits) - 1);
+            if (at[slot] != 0) {                       // duplicate: brightest wins
+                int j = at[slot] - 1;
+                if (m.vbr[v] > m.vbr[mark + j]) m.vbr[mark + j] = m.vbr[v];
+                continue;
+            }
+            key[slot] = kk; at[slot] = i + 1;
+            map[i] = k++;
+        }
+        Snapshot s = new Snapshot(id, ++version, k);
+        for (int i = 0; i < cnt; i++) {
+            int j = map[i], v = mark + i;
+            if (j < 0) continue;
+            s.x1[j] = m.vx1[v]; s.y1[j] = m.vy1[v];
+            s.x2[j] = m.vx2[v]; s.y2[j] = m.vy2[v];
+            s.pt[j] = m.vpt[v] || (m.vx1[v] == m.vx2[v] && m.vy1[v] == m.vy2[v]);
+            s.br[j] = m.vbr[v];
+        }
+        m.nvec = mark;
+        mark  = -1;
+        snap  = s;
+        dirty = false;
+    }
+
+    public Snapshot snapshot() { return snap; }
+
+    private static boolean keep(Machine m, int i) {
+        int ax = m.vx1[i], ay = m.vy1[i];
+        int bx = m.vpt[i] ? ax : m.vx2[i], by = m.vpt[i] ? ay : m.vy2[i];
+        return !((ax < 0 && bx < 0) || (ax > 1023 && bx > 1023)
+              || (ay < 0 && by < 0) || (ay > 1023 && by > 1023));
+    }
+}